@@ -8,6 +8,8 @@
  */
 package org.openhab.binding.pca301;
 
+import java.util.List;
+
 import org.openhab.core.binding.BindingProvider;
 
 /**
@@ -25,6 +27,22 @@ public interface PCA301BindingProvider extends BindingProvider {
 	 */
 	public String getItemName(int address, String property);
 	
+	/**
+	 * Returns the names of all items with passed address and property.
+	 * @param address device address
+	 * @param property name of the property
+	 * @return item names, empty if none is found
+	 * @since 1.9.0
+	 */
+	public List<String> getItemNames(int address, String property);
+	
+	/**
+	 * Returns the addresses of all bound devices.
+	 * @return device addresses without duplicates, empty if no item is bound
+	 * @since 1.9.0
+	 */
+	public int[] getAddresses();
+	
 	/**
 	 * Returns the device address for the item with passed name.
 	 * @param itemName name of the item
@@ -38,4 +56,44 @@ public interface PCA301BindingProvider extends BindingProvider {
 	 * @return property name or null if not found
 	 */
 	public String getProperty(String itemName);
+	
+	/**
+	 * Returns the deadband of the item with passed name. A change of the value which is smaller is not published.
+	 * @param itemName name of the item
+	 * @return deadband in unit of the property or in percent, see {@link #isRelativeDeadband(String)}, zero if not configured
+	 * @since 1.9.0
+	 */
+	public double getDeadband(String itemName);
+	
+	/**
+	 * Returns whether the deadband of the item with passed name is relative to the last published value or not.
+	 * @param itemName name of the item
+	 * @return true when the deadband is given in percent, false otherwise
+	 * @since 1.9.0
+	 */
+	public boolean isRelativeDeadband(String itemName);
+	
+	/**
+	 * Returns the minimal time between two updates of the item with passed name.
+	 * @param itemName name of the item
+	 * @return time in seconds, zero if not configured
+	 * @since 1.9.0
+	 */
+	public int getMinInterval(String itemName);
+	
+	/**
+	 * Returns the time after which the item with passed name is updated even if its value is unchanged.
+	 * @param itemName name of the item
+	 * @return time in seconds, zero if not configured
+	 * @since 1.9.0
+	 */
+	public int getHeartbeat(String itemName);
+	
+	/**
+	 * Returns the window of the aggregated property (e.g. power_avg) of the item with passed name.
+	 * @param itemName name of the item
+	 * @return window in seconds, zero if the property isn't aggregated
+	 * @since 1.9.0
+	 */
+	public int getWindow(String itemName);
 }
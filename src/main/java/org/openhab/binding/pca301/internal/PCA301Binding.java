@@ -8,16 +8,30 @@
  */
 package org.openhab.binding.pca301.internal;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.Dictionary;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang.StringUtils;
 import org.openhab.binding.pca301.PCA301BindingProvider;
 import org.openhab.binding.pca301.internal.PCA301BindingConfig.Property;
 import org.openhab.binding.pca301.internal.jeelink.JeeLinkDevice;
+import org.openhab.binding.pca301.internal.jeelink.JeeLinkDeviceGroup;
+import org.openhab.binding.pca301.internal.jeelink.JeeLinkDispatcher.OverflowPolicy;
 import org.openhab.binding.pca301.internal.jeelink.JeeLinkListener;
+import org.openhab.binding.pca301.internal.jeelink.JeeLinkMessage;
+import org.openhab.binding.pca301.internal.util.LongHashMap;
 import org.openhab.core.binding.AbstractBinding;
+import org.openhab.core.binding.BindingProvider;
 import org.openhab.core.library.types.DecimalType;
 import org.openhab.core.library.types.OnOffType;
 import org.openhab.core.types.Command;
@@ -38,14 +52,124 @@ public class PCA301Binding extends AbstractBinding<PCA301BindingProvider> implem
 	private static final Logger logger = LoggerFactory.getLogger(PCA301Binding.class);
 	
 	private final static String KEY_PORT = "port";
+	/** Prefix of the port keys for further JeeLink devices, e.g. port.1 */
+	private final static String KEY_PORT_PREFIX = KEY_PORT + ".";
 	private final static String KEY_RETRY_COUNT = "retryCount";
+	private final static String KEY_WATCHDOG_TIMEOUT = "watchdogTimeout";
+	private final static String KEY_CAPTURE_FILE = "captureFile";
+	private final static String KEY_REFRESH = "refresh";
+	private final static String KEY_OVERFLOW = "overflow";
 	
-	private final Map<Integer, Integer> channels = new HashMap<Integer, Integer>();
+	/**
+	 * Channel and last received state of a PCA301 device. Several JeeLink devices deliver in their own threads,
+	 * so a change of the state must be synchronized over the record. The fields are volatile for lookups without lock.
+	 * Power and consumption are filtered per item, see {@link PublishFilter}.
+	 */
+	private static class DeviceRecord {
+		
+		volatile int channel;
+		
+		volatile boolean stateKnown = false;
+		volatile boolean state;
+		
+		DeviceRecord(int channel) {
+			this.channel = channel;
+		}
+		
+		/** Forgets the state, so that it is published again with the next reception. */
+		void invalidate() {
+			stateKnown = false;
+		}
+	}
+	
+	/**
+	 * Decides which values of a number item are published, see {@link PCA301BindingProvider#getDeadband(String)},
+	 * {@link PCA301BindingProvider#getMinInterval(String)} and {@link PCA301BindingProvider#getHeartbeat(String)}.
+	 * Several JeeLink devices deliver values in their own threads, so access must be synchronized over the filter.
+	 */
+	private static class PublishFilter {
+		
+		/** Absolute deadband in raw units or relative deadband in percent. */
+		private final double deadband;
+		private final boolean relative;
+		private final long minInterval;
+		private final long heartbeat;
+		
+		private boolean published = false;
+		private int lastValue;
+		private long lastTime;
+		
+		PublishFilter(PCA301BindingProvider provider, String itemName, int scale) {
+			relative = provider.isRelativeDeadband(itemName);
+			deadband = relative ? provider.getDeadband(itemName) : provider.getDeadband(itemName) * Math.pow(10, scale);
+			minInterval = TimeUnit.SECONDS.toMillis(provider.getMinInterval(itemName));
+			heartbeat = TimeUnit.SECONDS.toMillis(provider.getHeartbeat(itemName));
+		}
+		
+		/**
+		 * Returns whether the passed value must be published or not.
+		 * @param value raw value
+		 * @param now current time in milliseconds
+		 */
+		boolean isDue(int value, long now) {
+			
+			if (!published) {
+				return true;
+			}
+			
+			final long elapsed = now - lastTime;
+			if ((heartbeat > 0) && (elapsed >= heartbeat)) {
+				return true;
+			}
+			if (value == lastValue) {
+				return false;
+			}
+			if ((minInterval > 0) && (elapsed < minInterval)) {
+				return false;
+			}
+			
+			if (deadband > 0) {
+				final double change = Math.abs((double) value - lastValue);
+				final double threshold = relative ? Math.abs((double) lastValue) * deadband / 100 : deadband;
+				if (change < threshold) {
+					return false;
+				}
+			}
+			return true;
+		}
+		
+		/** Remembers a published value. */
+		void published(int value, long now) {
+			published = true;
+			lastValue = value;
+			lastTime = now;
+		}
+	}
+	
+	/**
+	 * Records of all received PCA301 devices by address. The map is copied on write and never modified
+	 * after it is published, so lookups don't lock. Writes must be synchronized over {@link #recordLock}.
+	 */
+	private volatile LongHashMap<DeviceRecord> records = new LongHashMap<DeviceRecord>();
+	private final Object recordLock = new Object();
+	
+	/** Publishing state of every number item. */
+	private final ConcurrentMap<String, PublishFilter> filters = new ConcurrentHashMap<String, PublishFilter>();
+	
+	/** Last state which was posted by the binding for every switch item, to recognize the update when it comes back. */
+	private final ConcurrentMap<String, State> postedStates = new ConcurrentHashMap<String, State>();
+	
+	/** Power window of every item with an aggregated property. */
+	private final ConcurrentMap<String, PCA301PowerWindow> windows = new ConcurrentHashMap<String, PCA301PowerWindow>();
+	
+	private final static Property[] AGGREGATES = {Property.POWER_AVG, Property.POWER_MAX, Property.POWER_MIN};
 	
-	private final Map<String, State> cache = new HashMap<String, State>();
 	
+	JeeLinkDeviceGroup device = null;
 	
-	JeeLinkDevice device = null;
+	/** Scheduler of value refreshes or null if disabled. */
+	private volatile PCA301RefreshScheduler refreshScheduler = null;
+	private ScheduledExecutorService refreshExecutor = null;
 
 
 	@Override
@@ -53,16 +177,37 @@ public class PCA301Binding extends AbstractBinding<PCA301BindingProvider> implem
 		logger.trace("activate() called");
 		if (device != null) {
 			device.open();
+			startRefresh();
 		}
 	}
 
 	@Override
 	public void deactivate() {
 		logger.trace("deactivate() called");
+		stopRefresh();
 		if (device != null) {
 			device.close();
 		}
 	}
+	
+	/** Starts the periodic refresh of values, if it is configured. */
+	private synchronized void startRefresh() {
+		
+		if ((refreshScheduler != null) && (refreshExecutor == null)) {
+			refreshExecutor = Executors.newSingleThreadScheduledExecutor();
+			refreshExecutor.scheduleWithFixedDelay(refreshScheduler,
+					PCA301RefreshScheduler.TICK, PCA301RefreshScheduler.TICK, TimeUnit.SECONDS);
+		}
+	}
+	
+	/** Stops the periodic refresh of values. */
+	private synchronized void stopRefresh() {
+		
+		if (refreshExecutor != null) {
+			refreshExecutor.shutdownNow();
+			refreshExecutor = null;
+		}
+	}
 
 	/**
 	 * @{inheritDoc
@@ -87,11 +232,40 @@ public class PCA301Binding extends AbstractBinding<PCA301BindingProvider> implem
 		logger.trace("internalReceiveUpdate(" + itemName + ", " + newState + ") called");
 		if (newState instanceof OnOffType) {
 			
+			// the update was posted by the binding because the device reported its state
+			if (postedStates.remove(itemName, newState)) {
+				logger.trace("Ignore own update of " + itemName);
+				return;
+			}
+			
 			final OnOffType switchValue = (OnOffType)newState;
+			if (isConfirmedState(itemName, switchValue == OnOffType.ON)) {
+				logger.trace("Ignore update of " + itemName + ", the device is " + newState + " already");
+				return;
+			}
 			executeCommand(itemName, switchValue == OnOffType.ON);
 		}
 	}
 	
+	/**
+	 * Returns whether the passed state of a state item was reported by its device as current state or not.
+	 * @param itemName name of the item
+	 * @param value desired switching state
+	 * @return true when the device is in this state already, false otherwise
+	 */
+	private boolean isConfirmedState(String itemName, boolean value) {
+		
+		for (PCA301BindingProvider provider : providers) {
+			
+			final int address = provider.getAddress(itemName);
+			if ((address != 0) && Property.STATE.toString().equals(provider.getProperty(itemName))) {
+				final DeviceRecord record = records.get(address);
+				return (record != null) && record.stateKnown && (record.state == value);
+			}
+		}
+		return false;
+	}
+	
 	private void executeCommand(String itemName, boolean value) {
 		
 		for (PCA301BindingProvider provider : providers) {
@@ -99,15 +273,12 @@ public class PCA301Binding extends AbstractBinding<PCA301BindingProvider> implem
 			// find address and channel of item
 			final int address = provider.getAddress(itemName);
 			if (address != 0) {
-				Integer channel = null; 
-				synchronized (channels) {
-					channel = channels.get(Integer.valueOf(address));
-				}
-				
-				if (channel == null) {
+				final DeviceRecord record = records.get(address);
+				if (record == null) {
 					logger.warn("Unknown address: " + String.valueOf(address));
 					return;
 				}
+				final int channel = record.channel;
 				
 				// get property
 				final String propertyName = provider.getProperty(itemName);
@@ -157,6 +328,8 @@ public class PCA301Binding extends AbstractBinding<PCA301BindingProvider> implem
 		if (config != null) {
 
 			// configuration has changed, close JeeLink device if necessary
+			stopRefresh();
+			refreshScheduler = null;
 			if (device != null) {
 				
 				if (device.isOpen()) {
@@ -166,91 +339,398 @@ public class PCA301Binding extends AbstractBinding<PCA301BindingProvider> implem
 				device = null;
 			}
 			
-			// reset channels and cache
-			synchronized (channels) {
-				channels.clear();
-			}
-			synchronized (cache) {
-				cache.clear();
+			// reset device records
+			synchronized (recordLock) {
+				records = new LongHashMap<DeviceRecord>();
 			}
+			filters.clear();
+			windows.clear();
+			postedStates.clear();
 			
-			// read serial port name
-			final String port = (String) config.get(KEY_PORT);
-			if (StringUtils.isBlank(port)) {
+			// read serial port names
+			final List<String> ports = readPorts(config);
+			if (ports.isEmpty()) {
 				logger.error("Port of JeeLink device is missing");
 				throw new ConfigurationException(KEY_PORT, "The port can't be empty");
 			}
 			
 			// read retry count, default is zero
-			int retryCount = 0;
-			final String retryCountValue = (String) config.get(KEY_RETRY_COUNT);
-			if (StringUtils.isNotBlank(retryCountValue)) {
+			final int retryCount = readInteger(config, KEY_RETRY_COUNT, 0);
+			
+			// read watchdog timeout, default is disabled
+			final int watchdogTimeout = readInteger(config, KEY_WATCHDOG_TIMEOUT, 0);
+			
+			// read capture file, default is no recording
+			final String captureFile = (String) config.get(KEY_CAPTURE_FILE);
+			
+			// read dispatcher overflow policy, default is dropping of old values
+			final OverflowPolicy overflowPolicy = readOverflowPolicy(config);
+			
+			// read refresh cycle, default is disabled
+			final int refreshCycle = readInteger(config, KEY_REFRESH, 0);
+			
+			// create and open JeeLink devices
+			final List<JeeLinkDevice> devices = new ArrayList<JeeLinkDevice>(ports.size());
+			for (String port : ports) {
+				final JeeLinkDevice jeeLink;
 				try {
-					retryCount = Integer.parseInt(retryCountValue);
-					
-				} catch (final NumberFormatException e) {
-					logger.error("Failed to read retry count value: " + retryCountValue, e);
+					jeeLink = new JeeLinkDevice(port, retryCount);
+				} catch (IllegalArgumentException e) {
+					throw new ConfigurationException(KEY_PORT, e.getMessage());
 				}
+				jeeLink.setWatchdogTimeout(watchdogTimeout);
+				jeeLink.setOverflowPolicy(overflowPolicy);
+				if (StringUtils.isNotBlank(captureFile)) {
+					// every further device records in an own file
+					final String suffix = devices.isEmpty() ? "" : "." + devices.size();
+					jeeLink.setCaptureFile(captureFile.trim() + suffix);
+				}
+				devices.add(jeeLink);
 			}
-			
-			// create and open JeeLink device
-			device = new JeeLinkDevice(port, retryCount);
-			device.addListener(this);
+			device = new JeeLinkDeviceGroup(devices);
+			device.addListener(this, getBoundAddresses());
 			device.open();
+			
+			if (refreshCycle > 0) {
+				refreshScheduler = new PCA301RefreshScheduler(device, refreshCycle);
+				startRefresh();
+			}
 		}
 	}
+	
+	/**
+	 * Reads the behavior when received frames arrive faster than they are published.
+	 * @param config binding configuration
+	 * @return {@link OverflowPolicy#BLOCK} for "block", {@link OverflowPolicy#DROP_OLDEST_VALUES} otherwise
+	 * @throws ConfigurationException when the value is unknown
+	 */
+	private OverflowPolicy readOverflowPolicy(Dictionary<String, ?> config) throws ConfigurationException {
+		
+		final String value = (String) config.get(KEY_OVERFLOW);
+		if (StringUtils.isBlank(value) || "drop".equalsIgnoreCase(value.trim())) {
+			return OverflowPolicy.DROP_OLDEST_VALUES;
+		}
+		if ("block".equalsIgnoreCase(value.trim())) {
+			return OverflowPolicy.BLOCK;
+		}
+		throw new ConfigurationException(KEY_OVERFLOW, "Unknown overflow policy " + value + ", use drop or block");
+	}
+	
+	/**
+	 * Reads an integer value of the configuration.
+	 * @param config binding configuration
+	 * @param key key of the value
+	 * @param defaultValue value which is returned when the value is missing or invalid
+	 * @return the configured value or default value
+	 */
+	private int readInteger(Dictionary<String, ?> config, String key, int defaultValue) {
+		
+		final String value = (String) config.get(key);
+		if (StringUtils.isNotBlank(value)) {
+			try {
+				return Integer.parseInt(value.trim());
+				
+			} catch (final NumberFormatException e) {
+				logger.error("Failed to read " + key + " value: " + value, e);
+			}
+		}
+		return defaultValue;
+	}
+	
+	/**
+	 * Reads the ports of all JeeLink devices. The port of key {@link #KEY_PORT} is the first,
+	 * the ports of keys with {@link #KEY_PORT_PREFIX} follow in order of their number.
+	 * @param config binding configuration
+	 * @return list of ports, empty if none is configured
+	 * @throws ConfigurationException a port key has no valid number
+	 */
+	private List<String> readPorts(Dictionary<String, ?> config) throws ConfigurationException {
+		
+		final List<String> ports = new ArrayList<String>();
+		
+		final String port = (String) config.get(KEY_PORT);
+		if (StringUtils.isNotBlank(port)) {
+			ports.add(port.trim());
+		}
+		
+		final SortedMap<Integer, String> numberedPorts = new TreeMap<Integer, String>();
+		final Enumeration<String> keys = config.keys();
+		while (keys.hasMoreElements()) {
+			final String key = keys.nextElement();
+			if (!key.startsWith(KEY_PORT_PREFIX)) {
+				continue;
+			}
+			
+			final String value = (String) config.get(key);
+			if (StringUtils.isBlank(value)) {
+				continue;
+			}
+			
+			try {
+				final int number = Integer.parseInt(key.substring(KEY_PORT_PREFIX.length()));
+				numberedPorts.put(Integer.valueOf(number), value.trim());
+				
+			} catch (NumberFormatException e) {
+				throw new ConfigurationException(key, "Invalid number of port key: " + key);
+			}
+		}
+		ports.addAll(numberedPorts.values());
+		
+		return ports;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void bindingChanged(BindingProvider provider, String itemName) {
+		super.bindingChanged(provider, itemName);
+		
+		// publish the values of the address again for the new item
+		filters.remove(itemName);
+		windows.remove(itemName);
+		postedStates.remove(itemName);
+		updateSubscription();
+		if (provider instanceof PCA301BindingProvider) {
+			final DeviceRecord record = records.get(((PCA301BindingProvider) provider).getAddress(itemName));
+			if (record != null) {
+				record.invalidate();
+			}
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void allBindingsChanged(BindingProvider provider) {
+		super.allBindingsChanged(provider);
+		
+		for (DeviceRecord record : records.values()) {
+			record.invalidate();
+		}
+		filters.clear();
+		windows.clear();
+		postedStates.clear();
+		updateSubscription();
+	}
+	
+	/**
+	 * Subscribes the addresses of all bound items, so that frames of other devices aren't delivered.
+	 * Devices which aren't bound anymore aren't refreshed.
+	 */
+	private void updateSubscription() {
+		
+		final int[] addresses = getBoundAddresses();
+		final JeeLinkDeviceGroup current = device;
+		if (current != null) {
+			current.addListener(this, addresses);
+		}
+		final PCA301RefreshScheduler scheduler = refreshScheduler;
+		if (scheduler != null) {
+			scheduler.retainAddresses(addresses);
+		}
+	}
+	
+	/** Returns the addresses of all items of all providers. */
+	private int[] getBoundAddresses() {
+		
+		final LongHashMap<Boolean> addresses = new LongHashMap<Boolean>();
+		for (PCA301BindingProvider provider : providers) {
+			for (int address : provider.getAddresses()) {
+				addresses.put(address, Boolean.TRUE);
+			}
+		}
+		
+		final long[] keys = addresses.keys();
+		final int[] result = new int[keys.length];
+		for (int i = 0; i < keys.length; i++) {
+			result[i] = (int) keys[i];
+		}
+		return result;
+	}
 
 	@Override
 	public void onStateReceived(int address, int channel, boolean state) {
 		
-		synchronized (channels) {
-			channels.put(Integer.valueOf(address), Integer.valueOf(channel));
+		final PCA301RefreshScheduler scheduler = refreshScheduler;
+		if (scheduler != null) {
+			scheduler.onStateReceived(address, channel, state);
 		}
 		
-		logger.debug("Received for " + String.valueOf(address) + " state=" + (state ? "on" : "off"));
-		publishUpdate(address, Property.STATE, state ? OnOffType.ON : OnOffType.OFF);
+		final DeviceRecord record = getRecord(address, channel);
+		
+		// publish within the lock, so concurrent changes are published in the order they are recorded
+		synchronized (record) {
+			if (record.stateKnown && (record.state == state)) {
+				return;
+			}
+			record.state = state;
+			record.stateKnown = true;
+			
+			logger.debug("Received for " + String.valueOf(address) + " state=" + (state ? "on" : "off"));
+			publishUpdate(address, Property.STATE, state ? OnOffType.ON : OnOffType.OFF);
+		}
 	}
 
 	@Override
-	public void onValuesReceived(int address, int channel, double power, double consumption) {
+	public void onValuesReceived(int address, int channel, int power, int consumption) {
 		
-		synchronized (channels) {
-			channels.put(Integer.valueOf(address), Integer.valueOf(channel));
+		final PCA301RefreshScheduler scheduler = refreshScheduler;
+		if (scheduler != null) {
+			scheduler.onValuesReceived(address, channel, power);
 		}
 		
-		final String powerValue = Double.toString(power);
-		final String consumptionValue = Double.toString(consumption);
+		getRecord(address, channel);
+		
+		if (logger.isDebugEnabled()) {
+			logger.debug("Received for " + String.valueOf(address) + " power=" + BigDecimal.valueOf(power, JeeLinkMessage.POWER_SCALE)
+					+ " and consumption=" + BigDecimal.valueOf(consumption, JeeLinkMessage.CONSUMPTION_SCALE));
+		}
 		
-		logger.debug("Received for " + String.valueOf(address) + " power=" + powerValue + " and consumption=" + consumptionValue);
-		publishUpdate(address, Property.POWER, DecimalType.valueOf(powerValue));
-		publishUpdate(address, Property.CONSUMPTION, DecimalType.valueOf(consumptionValue));
+		final long now = System.currentTimeMillis();
+		publishValue(address, Property.POWER, power, JeeLinkMessage.POWER_SCALE, now);
+		publishValue(address, Property.CONSUMPTION, consumption, JeeLinkMessage.CONSUMPTION_SCALE, now);
+		for (Property property : AGGREGATES) {
+			publishAggregate(address, property, power, now);
+		}
 	}
 	
 	/**
-	 * Sends an update event to openHAB for passed value if necessary.
+	 * Returns the record of passed address and creates it if necessary.
+	 * @param address PCA301 device address
+	 * @param channel communication channel of the device
+	 * @return device record with updated channel
+	 */
+	private DeviceRecord getRecord(int address, int channel) {
+		
+		DeviceRecord record = records.get(address);
+		if (record == null) {
+			synchronized (recordLock) {
+				record = records.get(address);
+				if (record == null) {
+					record = new DeviceRecord(channel);
+					final LongHashMap<DeviceRecord> copy = new LongHashMap<DeviceRecord>(records);
+					copy.put(address, record);
+					records = copy;
+				}
+			}
+		}
+		
+		if (record.channel != channel) {
+			record.channel = channel;
+		}
+		return record;
+	}
+	
+	/**
+	 * Sends an update event to openHAB for every item which is bound to the passed property,
+	 * when the value has changed significantly or the heartbeat of the item is due.
 	 * @param address PCA301 device address
 	 * @param property PCA301 property
-	 * @param newValue new value of property
+	 * @param value raw value of property
+	 * @param scale number of decimal places of the raw value
+	 * @param now current time in milliseconds
 	 */
-	private void publishUpdate(int address, Property property, State newValue) {
+	private void publishValue(int address, Property property, int value, int scale, long now) {
 		
+		DecimalType newValue = null;
 		for (PCA301BindingProvider provider : providers) {
 			
-			// check if item exists for passed property
-			final String itemName = provider.getItemName(address, property.toString());
-			if (itemName != null) {
+			for (String itemName : provider.getItemNames(address, property.toString())) {
 				
-				// get and refresh current state
-				State currentValue = null;
-				synchronized (cache) {
-					currentValue = cache.put(itemName, newValue);
+				PublishFilter filter = filters.get(itemName);
+				if (filter == null) {
+					filter = new PublishFilter(provider, itemName, scale);
+					final PublishFilter other = filters.putIfAbsent(itemName, filter);
+					if (other != null) {
+						filter = other;
+					}
+				}
+				
+				// decide and record at once, so a value is published once
+				final boolean due;
+				synchronized (filter) {
+					due = filter.isDue(value, now);
+					if (due) {
+						filter.published(value, now);
+					}
 				}
 				
-				if (!newValue.equals(currentValue)) {
-					// value has changed
+				if (due) {
+					if (newValue == null) {
+						newValue = new DecimalType(BigDecimal.valueOf(value, scale));
+					}
 					eventPublisher.postUpdate(itemName, newValue);
 				}
 			}
 		}
 	}
+	
+	/**
+	 * Adds the power to the window of every item which is bound to the passed aggregated property
+	 * and sends an update event when the window is closed.
+	 * @param address PCA301 device address
+	 * @param property aggregated PCA301 property
+	 * @param power raw power
+	 * @param now current time in milliseconds
+	 */
+	private void publishAggregate(int address, Property property, int power, long now) {
+		
+		for (PCA301BindingProvider provider : providers) {
+			
+			for (String itemName : provider.getItemNames(address, property.toString())) {
+				
+				PCA301PowerWindow window = windows.get(itemName);
+				if (window == null) {
+					window = new PCA301PowerWindow(TimeUnit.SECONDS.toMillis(provider.getWindow(itemName)));
+					final PCA301PowerWindow other = windows.putIfAbsent(itemName, window);
+					if (other != null) {
+						window = other;
+					}
+				}
+				
+				// several JeeLink devices deliver values in their own threads
+				final long value;
+				synchronized (window) {
+					if (!window.add(power, now)) {
+						continue;
+					}
+					
+					switch (property) {
+					case POWER_AVG:
+						value = Math.round(window.getAverage());
+						break;
+					case POWER_MAX:
+						value = window.getMax();
+						break;
+					default:
+						value = window.getMin();
+						break;
+					}
+				}
+				eventPublisher.postUpdate(itemName, new DecimalType(BigDecimal.valueOf(value, JeeLinkMessage.POWER_SCALE)));
+			}
+		}
+	}
+	
+	/**
+	 * Sends an update event to openHAB for every item which is bound to the passed property.
+	 * @param address PCA301 device address
+	 * @param property PCA301 property
+	 * @param newValue new value of property
+	 */
+	private void publishUpdate(int address, Property property, State newValue) {
+		
+		for (PCA301BindingProvider provider : providers) {
+			
+			// every item which is bound to passed property
+			for (String itemName : provider.getItemNames(address, property.toString())) {
+				if (property == Property.STATE) {
+					postedStates.put(itemName, newValue);
+				}
+				eventPublisher.postUpdate(itemName, newValue);
+			}
+		}
+	}
 }
@@ -24,6 +24,16 @@ class PCA301BindingConfig implements BindingConfig {
 	
 	private static final String KEY_ADDRESS		= "address";
 	private static final String KEY_PROPERTY	= "property";
+	private static final String KEY_DEADBAND	= "deadband";
+	private static final String KEY_MIN_INTERVAL	= "minInterval";
+	private static final String KEY_HEARTBEAT	= "heartbeat";
+	private static final String KEY_WINDOW		= "window";
+	
+	/** Default window of aggregated properties. */
+	private static final int DEFAULT_WINDOW = 300; // in seconds
+	
+	/** Suffix of a deadband value which is relative to the last published value. */
+	private static final String PERCENT = "%";
 	
 	private static final String[] MANDATORY_KEYS = {KEY_ADDRESS, KEY_PROPERTY};
 	
@@ -33,9 +43,20 @@ class PCA301BindingConfig implements BindingConfig {
 		UNKNOWN,
 		CONSUMPTION,
 		POWER,
+		/** Average power over a window. */
+		POWER_AVG,
+		/** Maximal power within a window. */
+		POWER_MAX,
+		/** Minimal power within a window. */
+		POWER_MIN,
 		RESET,
 		STATE;
 		
+		/** Returns true if the property is aggregated over a window. */
+		public boolean isAggregate() {
+			return (this == POWER_AVG) || (this == POWER_MAX) || (this == POWER_MIN);
+		}
+		
 		@Override
 		public String toString() {
 			return name().toLowerCase();
@@ -45,6 +66,12 @@ class PCA301BindingConfig implements BindingConfig {
 	private int address;
 	private Property property;
 	
+	private double deadband = 0;
+	private boolean relativeDeadband = false;
+	private int minInterval = 0;
+	private int heartbeat = 0;
+	private int window = 0;
+	
 	
 	private PCA301BindingConfig(int address, Property property) {
 		this.address = address;
@@ -55,6 +82,35 @@ class PCA301BindingConfig implements BindingConfig {
 		return address;
 	}
 
+	public Property getProperty() {
+		return property;
+	}
+
+	/** Returns the minimal change of a value which is published, zero publishes every change. */
+	public double getDeadband() {
+		return deadband;
+	}
+
+	/** Returns true if the deadband is given in percent of the last published value. */
+	public boolean isRelativeDeadband() {
+		return relativeDeadband;
+	}
+
+	/** Returns the minimal time in seconds between two updates, zero if not limited. */
+	public int getMinInterval() {
+		return minInterval;
+	}
+
+	/** Returns the time in seconds after which a value is published even if it is unchanged, zero if disabled. */
+	public int getHeartbeat() {
+		return heartbeat;
+	}
+
+	/** Returns the window of an aggregated property in seconds, zero for other properties. */
+	public int getWindow() {
+		return window;
+	}
+
 	public String getPropertyName() {
 		
 		if (property == Property.UNKNOWN) {
@@ -108,7 +164,64 @@ class PCA301BindingConfig implements BindingConfig {
 			throw new BindingConfigParseException("Invalid property: " + parameter.get(KEY_PROPERTY));
 		}
 		
-		return new PCA301BindingConfig(address, property);
+		final PCA301BindingConfig config = new PCA301BindingConfig(address, property);
+		
+		// get optional publishing limits
+		String deadband = parameter.get(KEY_DEADBAND);
+		if (deadband != null) {
+			if (deadband.endsWith(PERCENT)) {
+				config.relativeDeadband = true;
+				deadband = deadband.substring(0, deadband.length() - PERCENT.length()).trim();
+			}
+			try {
+				config.deadband = Double.parseDouble(deadband);
+				
+			} catch (NumberFormatException e) {
+				throw new BindingConfigParseException("Invalid deadband: " + parameter.get(KEY_DEADBAND));
+			}
+			if (config.deadband < 0) {
+				throw new BindingConfigParseException("Invalid deadband: " + parameter.get(KEY_DEADBAND));
+			}
+		}
+		config.minInterval = parseSeconds(parameter, KEY_MIN_INTERVAL);
+		config.heartbeat = parseSeconds(parameter, KEY_HEARTBEAT);
+		
+		// get window of aggregated property
+		if (property.isAggregate()) {
+			config.window = parameter.containsKey(KEY_WINDOW) ? parseSeconds(parameter, KEY_WINDOW) : DEFAULT_WINDOW;
+			if (config.window == 0) {
+				throw new BindingConfigParseException("Invalid " + KEY_WINDOW + ": " + parameter.get(KEY_WINDOW));
+			}
+		} else if (parameter.containsKey(KEY_WINDOW)) {
+			throw new BindingConfigParseException("Parameter " + KEY_WINDOW + " is only valid for aggregated properties, not for " + property);
+		}
+		
+		return config;
+	}
+	
+	/**
+	 * Parses an optional time parameter.
+	 * @param parameter all parameters of the configuration
+	 * @param key key of the time parameter
+	 * @return time in seconds, zero if the parameter is missing
+	 * @throws BindingConfigParseException parameter is not a positive number
+	 */
+	private static int parseSeconds(Map<String, String> parameter, String key) throws BindingConfigParseException {
+		
+		final String value = parameter.get(key);
+		if (value == null) {
+			return 0;
+		}
+		
+		try {
+			final int seconds = Integer.parseInt(value);
+			if (seconds >= 0) {
+				return seconds;
+			}
+		} catch (NumberFormatException e) {
+			// handled below
+		}
+		throw new BindingConfigParseException("Invalid " + key + ": " + value);
 	}
 	
 }
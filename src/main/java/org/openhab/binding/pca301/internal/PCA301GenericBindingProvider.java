@@ -8,9 +8,14 @@
  */
 package org.openhab.binding.pca301.internal;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map.Entry;
 
 import org.openhab.binding.pca301.PCA301BindingProvider;
+import org.openhab.binding.pca301.internal.PCA301BindingConfig.Property;
+import org.openhab.binding.pca301.internal.util.LongHashMap;
 import org.openhab.core.binding.BindingConfig;
 import org.openhab.core.items.Item;
 import org.openhab.model.item.binding.AbstractGenericBindingProvider;
@@ -24,6 +29,24 @@ import org.openhab.model.item.binding.BindingConfigParseException;
  * @since 1.7.2
  */
 public class PCA301GenericBindingProvider extends AbstractGenericBindingProvider implements PCA301BindingProvider {
+	
+	private final static Property[] PROPERTIES = Property.values();
+	private final static String[] PROPERTY_NAMES = new String[PROPERTIES.length];
+	static {
+		for (int i = 0; i < PROPERTIES.length; i++) {
+			PROPERTY_NAMES[i] = PROPERTIES[i].toString();
+		}
+	}
+	
+	/** Lock which guards the rebuild of {@link #itemIndex}. */
+	private final Object indexLock = new Object();
+	
+	/**
+	 * Item names by address and property, see {@link #indexKey(int, Property)}. The map is never modified after
+	 * it is published. It is null when the bindings have changed and is rebuilt with the next lookup.
+	 */
+	private volatile LongHashMap<List<String>> itemIndex = null;
+	
 
 	/**
 	 * {@inheritDoc}
@@ -56,17 +79,62 @@ public class PCA301GenericBindingProvider extends AbstractGenericBindingProvider
 		addBindingConfig(item, config);
 	}
 	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void addBindingConfig(Item item, BindingConfig config) {
+		super.addBindingConfig(item, config);
+		invalidateIndex();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void removeConfigurations(String context) {
+		super.removeConfigurations(context);
+		invalidateIndex();
+	}
+	
 	@Override
 	public String getItemName(int address, String property) {
-		for (Entry<String, BindingConfig> entry : bindingConfigs.entrySet()) {
-			
-			final PCA301BindingConfig config = (PCA301BindingConfig)entry.getValue();
-			if ((address == config.getAddress()) && property.equals(config.getPropertyName())) {
-				return entry.getKey();
+		
+		final List<String> itemNames = getItemNames(address, property);
+		return itemNames.isEmpty() ? null : itemNames.get(0);
+	}
+	
+	@Override
+	public List<String> getItemNames(int address, String property) {
+		
+		for (int i = 0; i < PROPERTY_NAMES.length; i++) {
+			if (PROPERTY_NAMES[i].equals(property)) {
+				
+				final List<String> itemNames = getIndex().get(indexKey(address, PROPERTIES[i]));
+				if (itemNames != null) {
+					return itemNames;
+				}
+				break;
 			}
 		}
 		
-		return null;
+		return Collections.emptyList();
+	}
+
+	@Override
+	public int[] getAddresses() {
+		
+		final LongHashMap<Boolean> addresses = new LongHashMap<Boolean>();
+		for (BindingConfig config : bindingConfigs.values()) {
+			addresses.put(((PCA301BindingConfig)config).getAddress(), Boolean.TRUE);
+		}
+		
+		final long[] keys = addresses.keys();
+		final int[] result = new int[keys.length];
+		for (int i = 0; i < keys.length; i++) {
+			result[i] = (int) keys[i];
+		}
+		return result;
 	}
 
 	@Override
@@ -90,4 +158,89 @@ public class PCA301GenericBindingProvider extends AbstractGenericBindingProvider
 		
 		return null;
 	}
+	
+	@Override
+	public double getDeadband(String itemName) {
+		
+		PCA301BindingConfig config = (PCA301BindingConfig)bindingConfigs.get(itemName);
+		return (config != null) ? config.getDeadband() : 0;
+	}
+	
+	@Override
+	public boolean isRelativeDeadband(String itemName) {
+		
+		PCA301BindingConfig config = (PCA301BindingConfig)bindingConfigs.get(itemName);
+		return (config != null) && config.isRelativeDeadband();
+	}
+	
+	@Override
+	public int getMinInterval(String itemName) {
+		
+		PCA301BindingConfig config = (PCA301BindingConfig)bindingConfigs.get(itemName);
+		return (config != null) ? config.getMinInterval() : 0;
+	}
+	
+	@Override
+	public int getHeartbeat(String itemName) {
+		
+		PCA301BindingConfig config = (PCA301BindingConfig)bindingConfigs.get(itemName);
+		return (config != null) ? config.getHeartbeat() : 0;
+	}
+	
+	@Override
+	public int getWindow(String itemName) {
+		
+		PCA301BindingConfig config = (PCA301BindingConfig)bindingConfigs.get(itemName);
+		return (config != null) ? config.getWindow() : 0;
+	}
+	
+	/** Discards the item index, so that it is rebuilt with the next lookup. */
+	private void invalidateIndex() {
+		
+		synchronized (indexLock) {
+			itemIndex = null;
+		}
+	}
+	
+	/** Returns the current item index and rebuilds it when the bindings have changed. */
+	private LongHashMap<List<String>> getIndex() {
+		
+		LongHashMap<List<String>> index = itemIndex;
+		if (index != null) {
+			return index;
+		}
+		
+		synchronized (indexLock) {
+			
+			index = itemIndex;
+			if (index == null) {
+				
+				index = new LongHashMap<List<String>>(bindingConfigs.size());
+				for (Entry<String, BindingConfig> entry : bindingConfigs.entrySet()) {
+					
+					final PCA301BindingConfig config = (PCA301BindingConfig)entry.getValue();
+					final long key = indexKey(config.getAddress(), config.getProperty());
+					
+					List<String> itemNames = index.get(key);
+					if (itemNames == null) {
+						itemNames = new ArrayList<String>(1);
+						index.put(key, itemNames);
+					}
+					itemNames.add(entry.getKey());
+				}
+				
+				// lists are shared with all callers
+				for (long key : index.keys()) {
+					index.put(key, Collections.unmodifiableList(index.get(key)));
+				}
+				
+				itemIndex = index;
+			}
+			return index;
+		}
+	}
+	
+	private static long indexKey(int address, Property property) {
+		return ((long) address << 8) | property.ordinal();
+	}
 }
@@ -0,0 +1,118 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.pca301.internal;
+
+/**
+ * Tumbling window which aggregates the received power of a PCA301 device.<br>
+ * Every sample is added in constant time. The average is weighted with the time a value was valid.
+ * A window is closed by the first sample after its end. The windows are aligned to the first sample,
+ * the next window starts at the end of the closed one, or later by whole windows after a long gap.
+ * The class is not synchronized.
+ * @author ribbeck
+ * @since 1.9.0
+ */
+class PCA301PowerWindow {
+
+	private final long length;
+
+	private boolean started = false;
+	private long windowStart;
+
+	private int lastValue;
+	private long lastTime;
+
+	/** Sum of value multiplied with the time it was valid. */
+	private double weightedSum;
+	private int min;
+	private int max;
+
+	// aggregates of the last closed window
+	private double average;
+	private int closedMin;
+	private int closedMax;
+
+
+	/**
+	 * Constructor
+	 * @param length length of the window in milliseconds
+	 */
+	PCA301PowerWindow(long length) {
+		this.length = length;
+	}
+
+	/**
+	 * Adds a sample.
+	 * @param value raw power
+	 * @param now current time in milliseconds
+	 * @return true when the sample has closed a window, its aggregates are available then
+	 */
+	boolean add(int value, long now) {
+
+		if (!started) {
+			started = true;
+			start(value, now);
+			return false;
+		}
+
+		final long windowEnd = windowStart + length;
+		if (now < windowEnd) {
+			weightedSum += (double) lastValue * (now - lastTime);
+			min = Math.min(min, value);
+			max = Math.max(max, value);
+			lastValue = value;
+			lastTime = now;
+			return false;
+		}
+
+		// the last value is valid until the end of the window
+		weightedSum += (double) lastValue * (windowEnd - lastTime);
+		average = weightedSum / length;
+		closedMin = min;
+		closedMax = max;
+
+		// windows without samples in between are skipped, the last value is valid in the new one up to now
+		windowStart += ((now - windowStart) / length) * length;
+		weightedSum = (double) lastValue * (now - windowStart);
+		if (now > windowStart) {
+			min = Math.min(lastValue, value);
+			max = Math.max(lastValue, value);
+		} else {
+			min = value;
+			max = value;
+		}
+		lastValue = value;
+		lastTime = now;
+		return true;
+	}
+
+	/** Returns the time weighted average of the last closed window in raw units. */
+	double getAverage() {
+		return average;
+	}
+
+	/** Returns the minimum of the last closed window in raw units. */
+	int getMin() {
+		return closedMin;
+	}
+
+	/** Returns the maximum of the last closed window in raw units. */
+	int getMax() {
+		return closedMax;
+	}
+
+	private void start(int value, long now) {
+
+		windowStart = now;
+		weightedSum = 0;
+		min = value;
+		max = value;
+		lastValue = value;
+		lastTime = now;
+	}
+}
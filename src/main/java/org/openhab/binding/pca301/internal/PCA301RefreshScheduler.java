@@ -0,0 +1,236 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.pca301.internal;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openhab.binding.pca301.internal.jeelink.JeeLinkDeviceGroup;
+import org.openhab.binding.pca301.internal.util.LongHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Task which refreshes the values of all known PCA301 devices periodically.<br>
+ * The first refreshes are spread evenly over the cycle, so that requests don't collide on air.
+ * Every device has an own interval: it is shortened while the power changes and extended while the power
+ * is constant or the device is off. Every received value postpones the next refresh of the device.
+ * When many devices are due at once, the values of all devices are requested with one list command.
+ * A device which didn't answer several refreshes in a row or isn't bound anymore is forgotten
+ * until it is received again.
+ * The task must be run every {@link #TICK} seconds.
+ * @author ribbeck
+ * @since 1.9.0
+ */
+class PCA301RefreshScheduler implements Runnable {
+
+	private final static Logger logger = LoggerFactory.getLogger(PCA301RefreshScheduler.class);
+
+	/** Period in which the task must be run. */
+	final static int TICK = 1; // in seconds
+
+	/** Maximal number of single refreshes per run. Further due devices wait for the next run. */
+	private final static int MAX_REFRESHES_PER_TICK = 2;
+
+	/** Minimal number of due devices for a list command, which must be half of all known devices at least. */
+	private final static int MIN_LIST_COUNT = 4;
+
+	/** Number of refreshes in a row without answer, after which a device isn't refreshed anymore. */
+	private final static int MAX_UNANSWERED_REFRESHES = 3;
+
+	/** Fraction of the golden ratio, used to spread the first refreshes evenly. */
+	private final static double GOLDEN_RATIO_FRACTION = 0.6180339887;
+
+
+	/** Refresh schedule of a PCA301 device. */
+	private static class Entry {
+
+		final int address;
+		int channel;
+
+		boolean state = true;
+		boolean powerKnown = false;
+		int power;
+
+		long interval;
+		long nextRefresh;
+
+		/** Number of refreshes since the last reception. */
+		int unanswered = 0;
+
+		Entry(int address, int channel, long interval, long nextRefresh) {
+			this.address = address;
+			this.channel = channel;
+			this.interval = interval;
+			this.nextRefresh = nextRefresh;
+		}
+	}
+
+
+	private final JeeLinkDeviceGroup device;
+
+	private final long cycle;
+	private final long minInterval;
+	private final long maxInterval;
+
+	/** Schedule of every known address. Access must be synchronized. */
+	private final LongHashMap<Entry> entries = new LongHashMap<Entry>();
+	private long entryCount = 0;
+
+
+	/**
+	 * Constructor
+	 * @param device JeeLink devices which send the refreshes
+	 * @param cycle refresh interval of a device with normal activity in seconds
+	 */
+	PCA301RefreshScheduler(JeeLinkDeviceGroup device, int cycle) {
+		this.device = device;
+		this.cycle = TimeUnit.SECONDS.toMillis(cycle);
+		this.minInterval = Math.max(TimeUnit.SECONDS.toMillis(TICK), this.cycle / 4);
+		this.maxInterval = this.cycle * 8;
+	}
+
+	/**
+	 * Will be called when a state of a PCA301 device is received.
+	 * @param address PCA301 device address
+	 * @param channel communication channel
+	 * @param state current switching state
+	 */
+	synchronized void onStateReceived(int address, int channel, boolean state) {
+
+		final Entry entry = getEntry(address, channel, System.currentTimeMillis());
+		entry.unanswered = 0;
+		entry.state = state;
+		if (!state) {
+			entry.interval = maxInterval;
+		}
+	}
+
+	/**
+	 * Will be called when values of a PCA301 device are received, they replace the next refresh.
+	 * @param address PCA301 device address
+	 * @param channel communication channel
+	 * @param power raw power
+	 */
+	synchronized void onValuesReceived(int address, int channel, int power) {
+
+		final long now = System.currentTimeMillis();
+		final Entry entry = getEntry(address, channel, now);
+		entry.unanswered = 0;
+
+		if (!entry.state) {
+			entry.interval = maxInterval;
+		} else if (entry.powerKnown && (entry.power != power)) {
+			entry.interval = Math.max(minInterval, entry.interval / 2);
+		} else if (entry.powerKnown) {
+			entry.interval = Math.min(maxInterval, entry.interval * 2);
+		}
+		// keep the spread first refresh of a new device
+		if (entry.powerKnown) {
+			entry.nextRefresh = now + entry.interval;
+		}
+		entry.power = power;
+		entry.powerKnown = true;
+	}
+
+	/**
+	 * Forgets all devices which aren't in the passed addresses.
+	 * @param addresses PCA301 device addresses of bound items
+	 */
+	synchronized void retainAddresses(int[] addresses) {
+
+		final LongHashMap<Boolean> retained = new LongHashMap<Boolean>(addresses.length);
+		for (int address : addresses) {
+			retained.put(address, Boolean.TRUE);
+		}
+		for (long address : entries.keys()) {
+			if (!retained.containsKey(address)) {
+				logger.debug("Stop refresh of unbound device " + address);
+				entries.remove(address);
+			}
+		}
+	}
+
+	@Override
+	public void run() {
+
+		try {
+			final long now = System.currentTimeMillis();
+			final List<Entry> due = new ArrayList<Entry>();
+			boolean list = false;
+
+			synchronized (this) {
+				for (Entry entry : entries.values()) {
+					if (entry.nextRefresh <= now) {
+						due.add(entry);
+					}
+				}
+
+				// forget devices which are unplugged or out of range
+				for (Iterator<Entry> i = due.iterator(); i.hasNext();) {
+					final Entry entry = i.next();
+					if (entry.unanswered >= MAX_UNANSWERED_REFRESHES) {
+						logger.info("Stop refresh of device " + entry.address + " after " + entry.unanswered + " unanswered refreshes");
+						entries.remove(entry.address);
+						i.remove();
+					}
+				}
+				if (due.isEmpty()) {
+					return;
+				}
+
+				if ((due.size() >= MIN_LIST_COUNT) && ((due.size() * 2) >= entries.size())) {
+					// one list command answers all devices
+					list = true;
+					for (Entry entry : entries.values()) {
+						entry.nextRefresh = now + entry.interval;
+						entry.unanswered++;
+					}
+				} else {
+					while (due.size() > MAX_REFRESHES_PER_TICK) {
+						due.remove(due.size() - 1);
+					}
+					for (Entry entry : due) {
+						entry.nextRefresh = now + entry.interval;
+						entry.unanswered++;
+					}
+				}
+			}
+
+			if (list) {
+				logger.debug("Refresh " + due.size() + " due devices with list command");
+				device.listDevices();
+
+			} else {
+				for (Entry entry : due) {
+					device.refresh(entry.address, entry.channel);
+				}
+			}
+
+		} catch (Exception e) {
+			logger.error("Failed to refresh devices", e);
+		}
+	}
+
+	/** Returns the entry of passed address and creates it if necessary, access must be synchronized. */
+	private Entry getEntry(int address, int channel, long now) {
+
+		Entry entry = entries.get(address);
+		if (entry == null) {
+			// low discrepancy sequence spreads the first refreshes evenly over the cycle
+			final double phase = (entryCount++ * GOLDEN_RATIO_FRACTION) % 1.0;
+			entry = new Entry(address, channel, cycle, now + (long) (phase * cycle));
+			entries.put(address, entry);
+		}
+		entry.channel = channel;
+		return entry;
+	}
+}
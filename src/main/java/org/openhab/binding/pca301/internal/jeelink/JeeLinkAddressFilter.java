@@ -0,0 +1,25 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.pca301.internal.jeelink;
+
+/**
+ * Interface to decide while decoding whether the frames of a PCA301 device are of interest.<br>
+ * It is called by the reader as soon as the address bytes of a frame are parsed, so it must be fast.
+ * @author ribbeck
+ * @since 1.9.0
+ */
+public interface JeeLinkAddressFilter {
+
+	/**
+	 * Returns whether the frame of the passed address is decoded or discarded.
+	 * @param address PCA301 device address
+	 * @return true when the frame is decoded, false when it is discarded
+	 */
+	boolean accept(int address);
+}
@@ -0,0 +1,73 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.pca301.internal.jeelink;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.openhab.binding.pca301.internal.util.LongHashMap;
+
+/**
+ * Cache of encoded commands.<br>
+ * Every message to a PCA301 device (e.g. on, off, refresh and reset of an address and channel) and every text command
+ * is encoded once into ASCII bytes, which can be written directly to the output stream.
+ * @author ribbeck
+ * @since 1.9.0
+ */
+class JeeLinkCommandCache {
+
+	/** Maximal number of cached messages. When it is reached the cache is cleared. */
+	private final static int MAX_MESSAGES = 4096;
+
+	/** Encoded messages, key is packed of address, channel, command and parameter. */
+	private final LongHashMap<byte[]> messages = new LongHashMap<byte[]>();
+
+	private final Map<String, byte[]> texts = new HashMap<String, byte[]>();
+
+
+	/**
+	 * Returns the encoded message.
+	 * @param msg message to PCA301 device
+	 * @return ASCII bytes of {@link JeeLinkMessage#toSerialString()}, must not be modified
+	 */
+	public synchronized byte[] getBytes(JeeLinkMessage msg) {
+
+		final long key = ((long) (msg.getAddress() & 0xffffff) << 24) | ((msg.getChannel() & 0xff) << 16)
+				| ((msg.getCommand() & 0xff) << 8) | (msg.getParameter() & 0xff);
+
+		byte[] bytes = messages.get(key);
+		if (bytes == null) {
+			bytes = msg.toSerialBytes();
+
+			if (messages.size() >= MAX_MESSAGES) {
+				messages.clear();
+			}
+			messages.put(key, bytes);
+		}
+		return bytes;
+	}
+
+	/**
+	 * Returns the encoded text command.
+	 * @param text command to JeeLink device
+	 * @return ASCII bytes of the text, must not be modified
+	 */
+	public synchronized byte[] getBytes(String text) {
+
+		byte[] bytes = texts.get(text);
+		if (bytes == null) {
+			bytes = new byte[text.length()];
+			for (int i = 0; i < bytes.length; i++) {
+				bytes[i] = (byte) text.charAt(i);
+			}
+			texts.put(text, bytes);
+		}
+		return bytes;
+	}
+}
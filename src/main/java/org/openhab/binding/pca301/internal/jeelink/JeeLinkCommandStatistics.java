@@ -0,0 +1,78 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.pca301.internal.jeelink;
+
+/**
+ * Statistics of the commands sent to PCA301 devices: latency from sending to acknowledgement
+ * for switching ({@link JeeLinkMessage#CMD_STATE}) and value requests ({@link JeeLinkMessage#CMD_VALUES}),
+ * number of retries and number of commands which were never acknowledged.
+ * @author ribbeck
+ * @since 1.9.0
+ */
+public class JeeLinkCommandStatistics {
+
+	private final JeeLinkHistogram stateLatency = new JeeLinkHistogram();
+	private final JeeLinkHistogram valuesLatency = new JeeLinkHistogram();
+
+	private long retryCount = 0;
+	private long unacknowledgedCount = 0;
+
+
+	/**
+	 * Returns the latency histogram of a command.
+	 * @param cmd either {@link JeeLinkMessage#CMD_STATE} or {@link JeeLinkMessage#CMD_VALUES}
+	 * @return histogram with latencies in microseconds or null for other commands
+	 */
+	public JeeLinkHistogram getLatency(int cmd) {
+
+		switch (cmd) {
+		case JeeLinkMessage.CMD_STATE:
+			return stateLatency;
+		case JeeLinkMessage.CMD_VALUES:
+			return valuesLatency;
+		default:
+			return null;
+		}
+	}
+
+	/** Returns the number of retries. */
+	public synchronized long getRetryCount() {
+		return retryCount;
+	}
+
+	/** Returns the number of commands which were not acknowledged after the last try. */
+	public synchronized long getUnacknowledgedCount() {
+		return unacknowledgedCount;
+	}
+
+	/** Records the latency of an acknowledged command in microseconds. */
+	void recordAcknowledge(int cmd, long latency) {
+
+		final JeeLinkHistogram histogram = getLatency(cmd);
+		if (histogram != null) {
+			histogram.record(latency);
+		}
+	}
+
+	/** Counts a retry. */
+	synchronized void recordRetry() {
+		retryCount++;
+	}
+
+	/** Counts a command which was not acknowledged. */
+	synchronized void recordUnacknowledged() {
+		unacknowledgedCount++;
+	}
+
+	@Override
+	public String toString() {
+		return "state: " + stateLatency + ", values: " + valuesLatency
+				+ ", retries: " + getRetryCount() + ", unacknowledged: " + getUnacknowledgedCount();
+	}
+}
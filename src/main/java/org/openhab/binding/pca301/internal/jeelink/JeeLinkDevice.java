@@ -8,36 +8,25 @@
  */
 package org.openhab.binding.pca301.internal.jeelink;
 
-import gnu.io.CommPort;
-import gnu.io.CommPortIdentifier;
-import gnu.io.NoSuchPortException;
-import gnu.io.PortInUseException;
-import gnu.io.SerialPort;
-import gnu.io.SerialPortEvent;
-import gnu.io.SerialPortEventListener;
-import gnu.io.UnsupportedCommOperationException;
-
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
 import java.text.ParseException;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
-import java.util.TooManyListenersException;
+import java.util.Random;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.openhab.binding.pca301.internal.jeelink.JeeLinkDispatcher.OverflowPolicy;
 import org.openhab.binding.pca301.internal.jeelink.JeeLinkFilterSketch.InvalidSketchException;
+import org.openhab.binding.pca301.internal.jeelink.JeeLinkSendQueue.Priority;
+import org.openhab.binding.pca301.internal.util.LongHashMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -48,56 +37,237 @@ import org.slf4j.LoggerFactory;
  * @author ribbeck
  * @since 1.7.2
  */
-public class JeeLinkDevice implements SerialPortEventListener {
+public class JeeLinkDevice {
 	
 	private final static Logger logger = LoggerFactory.getLogger(JeeLinkDevice.class);
 	
-	private final static int RETRY_DELAY	= 3; // in seconds
+	/** Maximal time to wait for the end of the reader thread. */
+	private final static int READER_STOP_TIMEOUT = 1000; // in milliseconds
+	
+	/** Delay of the first reconnect, it is doubled with every failed attempt. */
+	private final static int RECONNECT_DELAY_MIN = 1; // in seconds
+	/** Maximal delay between two reconnect attempts. */
+	private final static int RECONNECT_DELAY_MAX = 300; // in seconds
+	
+	/** Maximal number of messages which wait to be sent. */
+	private final static int SEND_QUEUE_CAPACITY = 256;
 	
-	private String port = null;
+	/** Maximal number of received frames which wait to be delivered to the listeners. */
+	private final static int DISPATCH_CAPACITY = 1024;
+	
+	/** Maximal number of commands which wait for acknowledgement. Further commands are sent without retry. */
+	private final static int MAX_PENDING_COMMANDS = 1024;
+	
+	private final JeeLinkTransport transport;
+	private final String port;
 	private final int retryCount;
 	
-	private SerialPort serialPort = null;
 	private InputStream input = null;
 	private OutputStream output = null;
-	private BufferedReader reader = null;
-	private BufferedWriter writer = null;
-	private boolean isOpen = false;
 	
-	/** Collection of listeners. Access must be synchronized. */
-	private final Set<JeeLinkListener> listeners = new HashSet<JeeLinkListener>();
+	/** Whether the device was opened by the user. */
+	private volatile boolean isOpen = false;
+	/** Whether the serial port is currently connected. */
+	private final AtomicBoolean isConnected = new AtomicBoolean(false);
+	
+	/** Lock for connecting and disconnecting the serial port. */
+	private final Object connectionLock = new Object();
+	/** Delay of next reconnect in seconds. Access must be synchronized over {@link #connectionLock}. */
+	private int reconnectDelay = RECONNECT_DELAY_MIN;
+	/** Scheduled reconnect. Access must be synchronized over {@link #connectionLock}. */
+	private Future<?> reconnectTask = null;
+	/** Periodic check of received data. Access must be synchronized over {@link #connectionLock}. */
+	private Future<?> watchdogTask = null;
+	/** Timeout of watchdog in seconds, disabled when zero or less */
+	private int watchdogTimeout = 0;
+	/** Time of last received line in milliseconds. */
+	private volatile long lastReceiveTime = 0;
+	
+	/** Recorder of sent and received lines, null if recording is disabled. */
+	private JeeLinkRecorder recorder = null;
+	
+	private JeeLinkReader reader = null;
+	private Thread readerThread = null;
+	
+	/** Outgoing messages, which are written by {@link #writerThread} only. */
+	private final JeeLinkSendQueue sendQueue = new JeeLinkSendQueue(SEND_QUEUE_CAPACITY);
+	private JeeLinkWriter writerTask = null;
+	private Thread writerThread = null;
+	/** Encoded commands, which are reused for every connection. */
+	private final JeeLinkCommandCache commandCache = new JeeLinkCommandCache();
+	
+	/** Listeners with their addresses, the dispatch table is rebuilt on every change, so the dispatcher never blocks it. */
+	private final JeeLinkSubscriptions subscriptions = new JeeLinkSubscriptions();
+	
+	/** Delivers received frames to the listeners in {@link #dispatcherThread}, null while the device is closed. */
+	private volatile JeeLinkDispatcher dispatcher = null;
+	private Thread dispatcherThread = null;
+	/** Behavior of the dispatcher when the listeners can't keep up. */
+	private OverflowPolicy overflowPolicy = OverflowPolicy.DROP_OLDEST_VALUES;
 	
-	private final List<JeeLinkFilter> filters = new ArrayList<JeeLinkFilter>();
+	/** Filter which converts received lines to messages. */
+	private final JeeLinkFilterDispatcher filter = new JeeLinkFilterDispatcher();
 	
+	/** Number of frames which were discarded, because their address is of no interest. */
+	private final AtomicLong discardedCount = new AtomicLong();
 	
-	/** Mapping of message and pending retry tasks. Access must be synchronized. */
-	private final Map<JeeLinkMessage, Future<?>> pendingTasks = new HashMap<JeeLinkMessage, Future<?>>();
+	/** Discards frames of addresses without listener and without pending command as soon as the address is decoded. */
+	private final JeeLinkAddressFilter addressFilter = new JeeLinkAddressFilter() {
+		@Override
+		public boolean accept(int address) {
+			
+			if (subscriptions.isSubscribed(address) || hasPendingCommand(address)) {
+				return true;
+			}
+			
+			discardedCount.incrementAndGet();
+			if (logger.isDebugEnabled()) {
+				logger.debug("No listener for address " + address);
+			}
+			return false;
+		}
+	};
+	
+	
+	/** Commands which wait for acknowledgement with their retry tasks. Access must be synchronized. */
+	private final JeeLinkPendingCommands pendingTasks = new JeeLinkPendingCommands(MAX_PENDING_COMMANDS);
+	/** Retry timeouts and budgets of every address. Access must be synchronized over {@link #pendingTasks}. */
+	private final LongHashMap<JeeLinkRetryPolicy> retryPolicies = new LongHashMap<JeeLinkRetryPolicy>();
+	/** Command statistics of all addresses. */
+	private final JeeLinkCommandStatistics statistics = new JeeLinkCommandStatistics();
+	/** Command statistics of every address. Access must be synchronized over {@link #pendingTasks}. */
+	private final LongHashMap<JeeLinkCommandStatistics> addressStatistics = new LongHashMap<JeeLinkCommandStatistics>();
+	/** Random generator for the jitter of retries. Access must be synchronized over {@link #pendingTasks}. */
+	private final Random random = new Random();
 	/** Executor to run retry task. Access must be synchronized over {@link #pendingTasks}. */
 	private ScheduledExecutorService executor = null;
+	/** Other devices of a group, whose commands are acknowledged by messages received with this device. */
+	private volatile List<JeeLinkDevice> peers = Collections.emptyList();
 	
 	
 	/**
 	 * Constructor
 	 * @param port Serial port which is used to connect the JeeLink device (e.g. "/dev/ttyUSB0")
+	 *   or address of a TCP connection (e.g. "tcp://host:2000")
+	 * @param retryCount Number of maximal retries of a switching command
 	 */
 	public JeeLinkDevice(String port, int retryCount) {
-		this.port = port;
+		this(createTransport(port), retryCount);
+	}
+	
+	/**
+	 * Constructor
+	 * @param transport Transport which is used to connect the JeeLink device
+	 * @param retryCount Number of maximal retries of a switching command
+	 */
+	public JeeLinkDevice(JeeLinkTransport transport, int retryCount) {
+		this.transport = transport;
+		this.port = transport.getName();
 		this.retryCount = retryCount;
 		
-		filters.add(new JeeLinkFilterRegex("^OK 24 (.*)$"));
-		filters.add(new JeeLinkFilterRegex("^L 24 \\d+ \\d+ : (.*)$"));
-		filters.add(new JeeLinkFilterRegex("^R \\d+ : (.*)$"));
-		filters.add(new JeeLinkFilterSketch(10, 1));
+		addPayloadFilter("OK 24 ", null);
+		addPayloadFilter("L 24 ", " : ");
+		addPayloadFilter("R ", " : ");
+		filter.addFilter("[", new JeeLinkFilterSketch(10, 1));
+	}
+	
+	private void addPayloadFilter(String prefix, String separator) {
+		filter.addFilter(prefix, new JeeLinkFilterPayload(prefix, separator, addressFilter));
+	}
+	
+	/**
+	 * Adds a filter for further line formats.
+	 * @param prefix prefix of the lines which are processed by the filter, null to try the filter for all lines without known prefix
+	 * @param filter filter which converts lines into messages
+	 */
+	public void addFilter(String prefix, JeeLinkFilter filter) {
+		
+		if (prefix != null) {
+			this.filter.addFilter(prefix, filter);
+		} else {
+			this.filter.addFilter(filter);
+		}
+	}
+	
+	/**
+	 * Creates the transport for the passed port name.
+	 * @param port name of a serial port or an address with scheme {@link JeeLinkTransportTcp#SCHEME},
+	 *   {@link JeeLinkTransportLoopback#SCHEME} or {@link JeeLinkTransportReplay#SCHEME}
+	 * @return transport of the port
+	 */
+	public static JeeLinkTransport createTransport(String port) {
+		
+		if (port.startsWith(JeeLinkTransportTcp.SCHEME)) {
+			return JeeLinkTransportTcp.parse(port);
+		}
+		if (port.startsWith(JeeLinkTransportLoopback.SCHEME)) {
+			return new JeeLinkTransportLoopback(port);
+		}
+		if (port.startsWith(JeeLinkTransportReplay.SCHEME)) {
+			return JeeLinkTransportReplay.parse(port);
+		}
+		return new JeeLinkTransportSerial(port);
+	}
+	
+	/** Returns the transport which connects the JeeLink device. */
+	public JeeLinkTransport getTransport() {
+		return transport;
 	}
 	
 	/**
-	 * Returns whether the given serial port is open or not. 
+	 * Returns whether the device was opened or not. An open device reconnects automatically
+	 * when the connection to the serial port is lost.
 	 * @return true when it is open, false otherwise
 	 */
 	public boolean isOpen() {
 		return isOpen;
 	}
 	
+	/**
+	 * Returns whether the serial port is currently connected or not.
+	 * @return true when it is connected, false otherwise
+	 */
+	public boolean isConnected() {
+		return isConnected.get();
+	}
+	
+	/**
+	 * Sets the time after which the connection is reestablished when no data was received.
+	 * Must be set before the device is opened.
+	 * @param watchdogTimeout timeout in seconds, zero or less disables the watchdog
+	 */
+	public void setWatchdogTimeout(int watchdogTimeout) {
+		this.watchdogTimeout = watchdogTimeout;
+	}
+	
+	/**
+	 * Sets the file in which all sent and received lines are recorded.
+	 * Must be set before the device is opened.
+	 * @param fileName name of capture file, null disables recording
+	 * @see JeeLinkRecorder
+	 */
+	public void setCaptureFile(String fileName) {
+		this.recorder = (fileName != null) ? new JeeLinkRecorder(fileName) : null;
+	}
+	
+	/**
+	 * Sets the other devices of a group. A PCA301 device may answer a command of one device
+	 * which is only received by another one, so every received message acknowledges the commands of the peers as well.
+	 * @param peers other devices of the group
+	 */
+	void setPeers(List<JeeLinkDevice> peers) {
+		this.peers = Collections.unmodifiableList(new ArrayList<JeeLinkDevice>(peers));
+	}
+	
+	/**
+	 * Sets the behavior when received frames arrive faster than the listeners process them.
+	 * It is applied on next open.
+	 * @param overflowPolicy policy of the dispatcher
+	 */
+	public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+		this.overflowPolicy = overflowPolicy;
+	}
+	
 	
 	/** Opens the given serial port. */
 	public void open() {
@@ -109,50 +279,51 @@ public class JeeLinkDevice implements SerialPortEventListener {
 		
 		logger.info("Open port " + String.valueOf(port));
 		
-		try {
-			CommPortIdentifier portIdentifier = CommPortIdentifier.getPortIdentifier(port);
-			CommPort port = portIdentifier.open(JeeLinkDevice.class.getName(), 2000);
-			
-			serialPort = (SerialPort) port;
-			serialPort.setSerialPortParams(57600, SerialPort.DATABITS_8,
-					SerialPort.STOPBITS_1, SerialPort.PARITY_NONE);
-			
-			input = serialPort.getInputStream();
-			output = serialPort.getOutputStream();
-			
-			reader = new BufferedReader(new InputStreamReader(input));
-			writer = new BufferedWriter(new OutputStreamWriter(output));
+		if (recorder != null) {
+			try {
+				recorder.open(port);
+				logger.info("Record port " + port + " in " + recorder.getFileName());
 				
-			serialPort.notifyOnDataAvailable(true);
-			serialPort.addEventListener(this);
-			
-			this.isOpen = true;
-			
-		} catch (NoSuchPortException e) {
-			logger.error("Could not find port " + port, e);
-			
-		} catch (PortInUseException e) {
-			logger.error("Port " + port + "is already in use.", e);
-			
-		} catch (UnsupportedCommOperationException e) {
-			logger.error("Failed to setup port " + port, e);
-			
-		} catch (IOException e) {
-			logger.error("Failed to open port " + port, e);
-			
-		} catch (TooManyListenersException e) {
-			logger.error("Internal error", e);
+			} catch (IOException e) {
+				logger.error("Failed to open capture file " + recorder.getFileName(), e);
+			}
 		}
 		
 		synchronized (pendingTasks) {
 			executor = Executors.newSingleThreadScheduledExecutor();
 		}
 		
-		// enable quite mode
-		sendMessage("1q");
+		// deliver received frames in a dedicated thread, so slow listeners don't stall the reader
+		dispatcher = new JeeLinkDispatcher(DISPATCH_CAPACITY, subscriptions);
+		dispatcher.setOverflowPolicy(overflowPolicy);
+		dispatcherThread = new Thread(dispatcher, "JeeLink dispatcher " + this.port);
+		dispatcherThread.setDaemon(true);
+		dispatcherThread.start();
+		
+		isOpen = true;
+		
+		synchronized (connectionLock) {
+			
+			reconnectDelay = RECONNECT_DELAY_MIN;
+			if (connect()) {
+				initialize(false);
+			} else {
+				scheduleReconnect();
+			}
+			
+			if (watchdogTimeout > 0) {
+				final long period = Math.max(1, watchdogTimeout / 4);
+				watchdogTask = scheduleWithFixedDelay(new Runnable() {
+					@Override
+					public void run() {
+						checkWatchdog();
+					}
+				}, period, TimeUnit.SECONDS);
+			}
+		}
 	}
 	
-	/** Opens the given serial port. */
+	/** Closes the given serial port. */
 	public void close() {
 		
 		if (!isOpen) {
@@ -164,11 +335,19 @@ public class JeeLinkDevice implements SerialPortEventListener {
 		
 		isOpen = false;
 		
+		synchronized (connectionLock) {
+			if (reconnectTask != null) {
+				reconnectTask.cancel(false);
+				reconnectTask = null;
+			}
+			if (watchdogTask != null) {
+				watchdogTask.cancel(false);
+				watchdogTask = null;
+			}
+		}
+		
 		// stop retry tasks
 		synchronized (pendingTasks) {
-			for (Future<?> future : pendingTasks.values()) {
-				future.cancel(false);
-			}
 			pendingTasks.clear();
 			
 			if (executor != null) {
@@ -177,41 +356,228 @@ public class JeeLinkDevice implements SerialPortEventListener {
 			}
 		}
 		
-				
-		if (serialPort != null) {
-			serialPort.removeEventListener();
+		// release the reader if it waits for the dispatcher
+		final JeeLinkDispatcher oldDispatcher = dispatcher;
+		dispatcher = null;
+		oldDispatcher.stop();
+		dispatcherThread.interrupt();
+		dispatcherThread = null;
+		
+		synchronized (connectionLock) {
+			disconnect();
 		}
+		sendQueue.clear();
+		
+		if (recorder != null) {
+			recorder.close();
+		}
+	}
+	
+	/**
+	 * Connects the serial port and starts reader and writer. 
+	 * Access must be synchronized over {@link #connectionLock}.
+	 * @return true when the port is connected, false otherwise
+	 */
+	private boolean connect() {
 		
 		try {
-			if (reader != null) {
-				reader.close();
-			}
+			transport.open();
+			
+			input = transport.getInputStream();
+			output = transport.getOutputStream();
+			
+			lastReceiveTime = System.currentTimeMillis();
+			isConnected.set(true);
+			
+			// start reading lines in a dedicated thread
+			reader = new JeeLinkReader(this, input);
+			readerThread = new Thread(reader, "JeeLink reader " + this.port);
+			readerThread.setDaemon(true);
+			readerThread.start();
+			
+			// start writing queued messages in a dedicated thread
+			writerTask = new JeeLinkWriter(this, sendQueue, output, commandCache, recorder);
+			writerThread = new Thread(writerTask, "JeeLink writer " + this.port);
+			writerThread.setDaemon(true);
+			writerThread.start();
+			
+			return true;
+			
 		} catch (IOException e) {
-			logger.error("Failed to close serial reader", e);
+			logger.error("Failed to open port " + port, e);
 		}
 		
-		try {
-			if (writer != null) {
-				writer.close();
+		disconnect();
+		return false;
+	}
+	
+	/**
+	 * Stops reader and writer and disconnects the serial port. 
+	 * Access must be synchronized over {@link #connectionLock}.
+	 */
+	private void disconnect() {
+		
+		isConnected.set(false);
+		
+		// stop writer thread
+		if (writerTask != null) {
+			writerTask.stop();
+			writerTask = null;
+		}
+		if (writerThread != null) {
+			writerThread.interrupt();
+			writerThread = null;
+		}
+		
+		// stop reader thread
+		if (reader != null) {
+			reader.stop();
+			reader = null;
+		}
+		
+		transport.close();
+		input = null;
+		output = null;
+		
+		if (readerThread != null) {
+			if (readerThread != Thread.currentThread()) {
+				try {
+					readerThread.join(READER_STOP_TIMEOUT);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
 			}
-		} catch (IOException e) {
-			logger.error("Failed to close serial writer", e);
+			readerThread = null;
 		}
+	}
+	
+	/**
+	 * Initializes the JeeLink device after the port was connected.
+	 * @param reconnected true when the connection was reestablished
+	 */
+	private void initialize(boolean reconnected) {
 		
-		if (serialPort != null) {
-			serialPort.close();
+		// enable quite mode
+		sendMessage("1q", Priority.COMMAND);
+		
+		// request values which were missed during reconnect
+		if (reconnected) {
+			listDevices();
 		}
 	}
 	
 	/**
-	 * Adds the specified JeeLink listener to receive device events.
-	 * @param listener the JeeLink listener
+	 * Schedules the next attempt to reconnect the port and doubles the delay for the following attempt.
+	 * Access must be synchronized over {@link #connectionLock}.
 	 */
-	public void addListener(JeeLinkListener listener) {
+	private void scheduleReconnect() {
 		
-		synchronized (listeners) {
-			listeners.add(listener);
+		if (!isOpen) {
+			return;
 		}
+		
+		logger.info("Try to reconnect port " + port + " in " + reconnectDelay + " seconds");
+		reconnectTask = schedule(new Runnable() {
+			@Override
+			public void run() {
+				reconnect();
+			}
+		}, reconnectDelay, TimeUnit.SECONDS);
+		
+		reconnectDelay = Math.min(2 * reconnectDelay, RECONNECT_DELAY_MAX);
+	}
+	
+	private void reconnect() {
+		
+		synchronized (connectionLock) {
+			
+			reconnectTask = null;
+			if (!isOpen) {
+				return;
+			}
+			
+			disconnect();
+			
+			logger.info("Reconnect port " + port);
+			if (connect()) {
+				reconnectDelay = RECONNECT_DELAY_MIN;
+				initialize(true);
+			} else {
+				scheduleReconnect();
+			}
+		}
+	}
+	
+	/**
+	 * Disconnects the port and starts to reconnect it. 
+	 * Only the first call for a connection has an effect.
+	 * @param reason reason of the lost connection
+	 */
+	private void connectionLost(String reason) {
+		
+		if (!isOpen || !isConnected.compareAndSet(true, false)) {
+			return;
+		}
+		
+		logger.warn("Lost connection to JeeLink device on port " + port + ": " + reason);
+		
+		synchronized (connectionLock) {
+			if (reconnectTask != null) {
+				return;
+			}
+			reconnectTask = schedule(new Runnable() {
+				@Override
+				public void run() {
+					reconnect();
+				}
+			}, 0, TimeUnit.SECONDS);
+		}
+	}
+	
+	private void checkWatchdog() {
+		
+		final long silence = System.currentTimeMillis() - lastReceiveTime;
+		if (isConnected() && (silence > TimeUnit.SECONDS.toMillis(watchdogTimeout))) {
+			connectionLost("No data received for " + TimeUnit.MILLISECONDS.toSeconds(silence) + " seconds");
+		}
+	}
+	
+	private Future<?> schedule(Runnable task, long delay, TimeUnit unit) {
+		
+		synchronized (pendingTasks) {
+			if (executor == null) {
+				return null;
+			}
+			return executor.schedule(task, delay, unit);
+		}
+	}
+	
+	private Future<?> scheduleWithFixedDelay(Runnable task, long delay, TimeUnit unit) {
+		
+		synchronized (pendingTasks) {
+			if (executor == null) {
+				return null;
+			}
+			return executor.scheduleWithFixedDelay(task, delay, delay, unit);
+		}
+	}
+	
+	/**
+	 * Adds the specified JeeLink listener to receive device events of all addresses.
+	 * @param listener the JeeLink listener
+	 */
+	public void addListener(JeeLinkListener listener) {
+		subscriptions.subscribe(listener, null);
+	}
+	
+	/**
+	 * Adds the specified JeeLink listener to receive device events of the passed addresses.
+	 * A listener which is added already receives the passed addresses from now on.
+	 * @param listener the JeeLink listener
+	 * @param addresses PCA301 device addresses, null for all addresses
+	 */
+	public void addListener(JeeLinkListener listener, int[] addresses) {
+		subscriptions.subscribe(listener, addresses);
 	}
 	
 	/**
@@ -219,9 +585,107 @@ public class JeeLinkDevice implements SerialPortEventListener {
 	 * @param listener the JeeLink listener
 	 */
 	public void removeListener(JeeLinkListener listener) {
+		subscriptions.unsubscribe(listener);
+	}
+	
+	/** Returns the number of messages which wait to be sent. */
+	public int getSendQueueSize() {
+		return sendQueue.size();
+	}
+	
+	/** Returns the number of messages which were merged into a queued message for the same PCA301 device. */
+	public long getSendQueueCoalescedCount() {
+		return sendQueue.getCoalescedCount();
+	}
+	
+	/** Returns the average time in milliseconds a message waited to be sent. */
+	public double getSendQueueAverageWaitTime() {
+		return sendQueue.getAverageWaitTime();
+	}
+	
+	/** Returns the maximal time in milliseconds a message waited to be sent. */
+	public long getSendQueueMaxWaitTime() {
+		return sendQueue.getMaxWaitTime();
+	}
+	
+	/** Returns the number of messages which were discarded because the send queue was full. */
+	public long getSendQueueRejectedCount() {
+		return sendQueue.getRejectedCount();
+	}
+	
+	/** Returns the number of received frames which wait to be delivered to the listeners. */
+	public int getDispatchQueueSize() {
+		final JeeLinkDispatcher current = dispatcher;
+		return (current != null) ? current.size() : 0;
+	}
+	
+	/**
+	 * Returns whether all received frames were delivered to the listeners or not.
+	 * Lines which the reader hasn't read yet aren't considered.
+	 */
+	public boolean isDispatchIdle() {
+		final JeeLinkDispatcher current = dispatcher;
+		return (current == null) || current.isIdle();
+	}
+	
+	/** Returns the maximal number of received frames which waited at once since the device was opened. */
+	public int getDispatchQueueMaxSize() {
+		final JeeLinkDispatcher current = dispatcher;
+		return (current != null) ? current.getMaxSize() : 0;
+	}
+	
+	/** Returns the number of values frames which were dropped since the device was opened, because the listeners were too slow. */
+	public long getDispatchDroppedCount() {
+		final JeeLinkDispatcher current = dispatcher;
+		return (current != null) ? current.getDroppedCount() : 0;
+	}
+	
+	/** Returns the number of times the reader waited since the device was opened, because the listeners were too slow. */
+	public long getDispatchBlockedCount() {
+		final JeeLinkDispatcher current = dispatcher;
+		return (current != null) ? current.getBlockedCount() : 0;
+	}
 	
-		synchronized (listeners) {
-			listeners.remove(listener);
+	/** Returns the number of received frames which were discarded, because no listener subscribed their address. */
+	public long getDiscardedFrameCount() {
+		return discardedCount.get();
+	}
+	
+	/** Returns the number of commands which wait for acknowledgement by a PCA301 device. */
+	public int getPendingCommandCount() {
+		
+		synchronized (pendingTasks) {
+			return pendingTasks.size();
+		}
+	}
+	
+	/** Returns the latencies, retries and unacknowledged commands of all PCA301 devices. */
+	public JeeLinkCommandStatistics getCommandStatistics() {
+		return statistics;
+	}
+	
+	/**
+	 * Returns the latencies, retries and unacknowledged commands of a PCA301 device.
+	 * @param address PCA301 device address
+	 * @return statistics or null when no command was sent to the address
+	 */
+	public JeeLinkCommandStatistics getCommandStatistics(int address) {
+		
+		synchronized (pendingTasks) {
+			return addressStatistics.get(address);
+		}
+	}
+	
+	/**
+	 * Returns the current retry timeout of a PCA301 device, which is adapted to the measured round-trip time.
+	 * @param address PCA301 device address
+	 * @return timeout in milliseconds without jitter
+	 */
+	public long getRetryTimeout(int address) {
+		
+		synchronized (pendingTasks) {
+			final JeeLinkRetryPolicy policy = retryPolicies.get(address);
+			return (policy != null) ? policy.getTimeout() : JeeLinkRetryPolicy.INITIAL_TIMEOUT;
 		}
 	}
 	
@@ -232,7 +696,7 @@ public class JeeLinkDevice implements SerialPortEventListener {
 	public void listDevices() {
 		
 		logger.info("List devices");
-		sendMessage("l");
+		sendMessage("l", Priority.POLL);
 	}
 	
 	/**
@@ -247,7 +711,7 @@ public class JeeLinkDevice implements SerialPortEventListener {
 		final int param = state ? JeeLinkMessage.PARAM_ON : JeeLinkMessage.PARAM_OFF; 
 		final JeeLinkMessage msg = new JeeLinkMessage(address, channel, JeeLinkMessage.CMD_STATE, param);
 		
-		sendMessage(msg, retryCount);
+		sendMessage(msg, retryCount, Priority.COMMAND, false);
 	}
 	
 	/**
@@ -259,7 +723,7 @@ public class JeeLinkDevice implements SerialPortEventListener {
 		
 		logger.debug("Refresh values of " + String.valueOf(address));
 		final JeeLinkMessage msg = new JeeLinkMessage(address, channel, JeeLinkMessage.CMD_VALUES, JeeLinkMessage.PARAM_NONE);
-		sendMessage(msg);
+		sendMessage(msg, 0, Priority.POLL, true);
 	}
 	
 	/**
@@ -271,123 +735,275 @@ public class JeeLinkDevice implements SerialPortEventListener {
 		
 		logger.debug("Reset values of " + String.valueOf(address));
 		final JeeLinkMessage msg = new JeeLinkMessage(address, channel, JeeLinkMessage.CMD_VALUES, JeeLinkMessage.PARAM_RESET);
-		sendMessage(msg);
+		sendMessage(msg, 0, Priority.COMMAND, true);
 	}
 	
 	/**
-	 * Send the specified message with JeeLink device
+	 * Send the specified message with JeeLink device and wait for its acknowledgement.
 	 * @param msg Message to PCA301 device
-	 * @param retryCount Number of maximal retries. With zero or less behavior is same as {@link #sendMessage(JeeLinkMessage)}.
+	 * @param retryCount Number of maximal retries. With zero the message is sent once and only counted
+	 *   as unacknowledged when no answer is received in time.
+	 * @param priority priority of the message in send queue
+	 * @param poll true for a value request or reset, whose latency is measured without adapting the retry policy
 	 */
-	protected void sendMessage(JeeLinkMessage msg, int retryCount) {
+	protected void sendMessage(JeeLinkMessage msg, int retryCount, Priority priority, boolean poll) {
 		
-		if (retryCount > 0) {
+		synchronized (pendingTasks) {
+			addPendingTask(msg, retryCount, priority, poll);
+		}
+		queueMessage(msg, priority);
+	}
+	
+	/**
+	 * Creates the task which retries or gives up the message when the timeout expires,
+	 * access must be synchronized over {@link #pendingTasks}.
+	 */
+	private void addPendingTask(JeeLinkMessage msg, int retryCount, Priority priority, boolean poll) {
+		
+		if (executor != null) {
 			
-			// create retry task
-			final Runnable task = new RetrySendTask(this, msg, retryCount);
+			final Runnable task = new RetrySendTask(this, msg, Math.max(0, retryCount));
+			final long timeout = getTimeout(msg, poll);
+			logger.debug("Create pending task for address=" + msg.getAddress() + " cmd=" + msg.getCommand() + " timeout=" + timeout);
 			
+			// schedule task and cancel old one for same message, it is restarted when the message is written
+			final Future<?> future = executor.schedule(task, timeout, TimeUnit.MILLISECONDS);
+			if (!pendingTasks.put(msg, task, future, priority == Priority.RETRY, poll)) {
+				future.cancel(false);
+				logger.warn("Too many pending commands, don't wait for acknowledgement of address=" + msg.getAddress() + " cmd=" + msg.getCommand());
+			}
+		}
+	}
+	
+	/** Queues a message whose pending task is created, the task is removed when the message can't be queued. */
+	private void queueMessage(JeeLinkMessage msg, Priority priority) {
+		
+		if (!sendMessage(msg, priority)) {
+			// nothing was sent, so nothing is acknowledged
 			synchronized (pendingTasks) {
-				
-				if (executor != null) {
-					
-					logger.debug("Create pending task for address=" + msg.getAddress() + " cmd=" + msg.getCommand());
-					
-					// schedule task and cancel old one for same message
-					final Future<?> future = executor.schedule(task, RETRY_DELAY, TimeUnit.SECONDS);
-					final Future<?> old = pendingTasks.put(msg, future);
-					if (old != null) {
-						old.cancel(false);
-					}
+				if (pendingTasks.isPending(msg)) {
+					pendingTasks.remove(JeeLinkPendingCommands.key(msg));
+				}
+			}
+		}
+	}
+	
+	/** Returns the retry timeout of a message, access must be synchronized over {@link #pendingTasks}. */
+	private long getTimeout(JeeLinkMessage msg, boolean poll) {
+		return poll ? JeeLinkRetryPolicy.INITIAL_TIMEOUT : getRetryPolicy(msg.getAddress()).nextTimeout(random);
+	}
+	
+	/**
+	 * Will be called by the writer when a message was written to the JeeLink device.
+	 * The retry timer and the round-trip time of a pending command start now, so the time in the send queue doesn't count.
+	 * @param msg Message to PCA301 device
+	 */
+	void onMessageWritten(JeeLinkMessage msg) {
+		
+		synchronized (pendingTasks) {
+			
+			// a written refresh or reset answers any pending poll of the device, a state change only itself
+			final JeeLinkPendingCommands.Entry entry = pendingTasks.get(JeeLinkPendingCommands.key(msg));
+			if ((entry != null) && (executor != null) && (entry.isPoll() || entry.getMessage().equals(msg))) {
+				final long timeout = getTimeout(entry.getMessage(), entry.isPoll());
+				entry.sent(executor.schedule(entry.getTask(), timeout, TimeUnit.MILLISECONDS));
+			}
+		}
+	}
+	
+	/**
+	 * Will be called by the retry task when a command is not acknowledged in time.
+	 * The message is sent again if retries are left and the retry budget of the PCA301 device allows it.
+	 * @param msg Message to PCA301 device
+	 * @param retryCount Number of remaining retries including this one
+	 */
+	void retryMessage(JeeLinkMessage msg, int retryCount) {
+		
+		synchronized (pendingTasks) {
+			
+			// acknowledged or superseded in the meantime
+			final JeeLinkPendingCommands.Entry entry = pendingTasks.get(msg);
+			if (entry == null) {
+				return;
+			}
+			
+			// still waiting in the send queue, the timer is restarted when it is written
+			if (!entry.isSent() && sendQueue.contains(msg) && (executor != null)) {
+				final long timeout = getTimeout(msg, entry.isPoll());
+				entry.reschedule(executor.schedule(entry.getTask(), timeout, TimeUnit.MILLISECONDS));
+				return;
+			}
+			
+			if (retryCount <= 0) {
+				// an unanswered poll is expected for an unplugged device and says nothing about the switching round-trip time
+				if (entry.isPoll()) {
+					logger.debug("Poll " + msg.getCommand() + " for address " + msg.getAddress() + " is not answered");
+				} else {
+					logger.info("Command " + msg.getCommand() + " for address " + msg.getAddress() + " is not acknowledged");
+					getRetryPolicy(msg.getAddress()).backoff();
 				}
+				giveUp(msg);
+				return;
 			}
+			
+			final JeeLinkRetryPolicy policy = getRetryPolicy(msg.getAddress());
+			policy.backoff();
+			if (!policy.acquireRetry()) {
+				logger.warn("Retry budget of address " + msg.getAddress() + " is exhausted, discard command " + msg.getCommand());
+				giveUp(msg);
+				return;
+			}
+			
+			statistics.recordRetry();
+			getStatistics(msg.getAddress()).recordRetry();
+			
+			// a newer command must not be replaced by this retry between check and registration
+			addPendingTask(msg, (retryCount - 1), Priority.RETRY, false);
+		}
+		
+		queueMessage(msg, Priority.RETRY);
+	}
+	
+	/** Removes a command which is not acknowledged, access must be synchronized over {@link #pendingTasks}. */
+	private void giveUp(JeeLinkMessage msg) {
+		
+		pendingTasks.remove(JeeLinkPendingCommands.key(msg));
+		statistics.recordUnacknowledged();
+		getStatistics(msg.getAddress()).recordUnacknowledged();
+	}
+	
+	/** Returns the statistics of passed address, access must be synchronized over {@link #pendingTasks}. */
+	private JeeLinkCommandStatistics getStatistics(int address) {
+		
+		JeeLinkCommandStatistics stats = addressStatistics.get(address);
+		if (stats == null) {
+			stats = new JeeLinkCommandStatistics();
+			addressStatistics.put(address, stats);
 		}
+		return stats;
+	}
+	
+	/** Returns the retry policy of passed address, access must be synchronized over {@link #pendingTasks}. */
+	private JeeLinkRetryPolicy getRetryPolicy(int address) {
 		
-		sendMessage(msg);
+		JeeLinkRetryPolicy policy = retryPolicies.get(address);
+		if (policy == null) {
+			policy = new JeeLinkRetryPolicy();
+			retryPolicies.put(address, policy);
+		}
+		return policy;
 	}
 	
 	/**
 	 * Send the specified message with JeeLink device
 	 * @param msg Message to PCA301 device
+	 * @param priority priority of the message in send queue
+	 * @return true when the message is queued, false when it is discarded
 	 */
-	protected void sendMessage(JeeLinkMessage msg) {
+	protected boolean sendMessage(JeeLinkMessage msg, Priority priority) {
+		
+		if (!isConnected.get()) {
+			logger.error("Not connected to JeeLink device");
+			return false;
+		}
 		
-		final String text = msg.toSerialString();
-		sendMessage(text);
+		if (!sendQueue.offer(msg, priority)) {
+			logger.warn("Send queue is full, discard message for address=" + msg.getAddress() + " cmd=" + msg.getCommand());
+			return false;
+		}
+		return true;
 	}
 	
-	private void sendMessage(String msg) {
+	private void sendMessage(String msg, Priority priority) {
 		
-		if (!isOpen) {
+		if (!isConnected.get()) {
 			logger.error("Not connected to JeeLink device");
 			return;
 		}
 		
-		try {
-			logger.trace("Send message " + msg);
-			writer.write(msg);
-			writer.flush();
-						
-		} catch (IOException e) {
-			logger.error("Failed to send message " + msg, e);
+		if (!sendQueue.offer(msg, priority)) {
+			logger.warn("Send queue is full, discard message " + msg);
 		}
 	}
 
-	@Override
-	public void serialEvent(SerialPortEvent event) {
+	/**
+	 * Will be called by the reader when the end of the input stream is reached.
+	 */
+	void onEndOfStream() {
+		logger.error("Reach EOF on serial port " + port);
+		connectionLost("End of stream");
+	}
+	
+	/**
+	 * Will be called by the reader when the input stream can't be read any more.
+	 * @param e cause of the error
+	 */
+	void onReadError(IOException e) {
+		logger.error("Failed to read content on serial port " + port, e);
+		connectionLost("Read error");
+	}
+	
+	/**
+	 * Will be called by the writer when several messages in a row couldn't be written.
+	 * @param e cause of the last error
+	 */
+	void onWriteError(IOException e) {
+		connectionLost("Write error: " + e.getMessage());
+	}
+	
+	/**
+	 * Will be called by the reader for every received line.
+	 * @param line received line which is only valid during this call
+	 */
+	void processLine(JeeLinkLine line) {
 		
-		if (event.getEventType() != SerialPortEvent.DATA_AVAILABLE) {
+		if (!isOpen) {
 			return;
 		}
 		
-		if (isOpen) {
-			receiveMessage();
+		lastReceiveTime = System.currentTimeMillis();
+		
+		if (recorder != null) {
+			recorder.recordReceived(line);
 		}
-	}
-	
-	private void receiveMessage() {
 		
 		try {
-			String data = reader.readLine();
-			if (data == null) {
-				logger.error("Reach EOF on serial port " + port);
-				return;
+			if (logger.isTraceEnabled()) {
+				logger.trace("Received raw data: " + line);
 			}
 			
-			logger.trace("Received raw data: " + data);
-			
-			JeeLinkMessage msg = null;
-			
 			// filter converts data to message object
-			for (JeeLinkFilter filter : filters) {
-				msg = filter.processLine(data);
-				if (msg != null) {
-					break;
-				}
-			}
+			final JeeLinkMessage msg = filter.processLine(line);
 			
 			if (msg != null) {
 				
 				clearPendingTasks(msg);
+				for (JeeLinkDevice peer : peers) {
+					peer.clearPendingTasks(msg);
+				}
 				
 				final int cmd = msg.getCommand();
 				final boolean state = msg.getParameter() == JeeLinkMessage.PARAM_ON ? true : false;
+				final JeeLinkDispatcher current = dispatcher;
+				
+				if (((cmd == JeeLinkMessage.CMD_STATE) || (cmd == JeeLinkMessage.CMD_VALUES))
+						&& !subscriptions.isSubscribed(msg.getAddress())) {
+					discardedCount.incrementAndGet();
+					logger.debug("No listener for address " + msg.getAddress());
+					return;
+				}
 				
 				switch (cmd) {
 				case JeeLinkMessage.CMD_STATE:
 					// message with current state only
-					synchronized (listeners) {
-						for (JeeLinkListener listener : listeners) {
-							listener.onStateReceived(msg.getAddress(), msg.getChannel(), state);
-						}
+					if (current != null) {
+						current.offerState(msg.getAddress(), msg.getChannel(), state);
 					}
 					break;
 				case JeeLinkMessage.CMD_VALUES:
 					// message with current state and values
-					synchronized (listeners) {
-						for (JeeLinkListener listener : listeners) {
-							listener.onStateReceived(msg.getAddress(), msg.getChannel(), state);
-							listener.onValuesReceived(msg.getAddress(), msg.getChannel(), msg.getPower(), msg.getConsumption());
-						}
+					if (current != null) {
+						current.offerValues(msg.getAddress(), msg.getChannel(), state, msg.getRawPower(), msg.getRawConsumption());
 					}
 					break;
 				case JeeLinkMessage.CMD_PAIRING:
@@ -400,12 +1016,12 @@ public class JeeLinkDevice implements SerialPortEventListener {
 				}
 			}
 			
-		} catch (IOException e) {
-			logger.error("Failed to read content on serial port " + port, e);
-			
 		} catch (ParseException e) {
 			logger.error("Failed to parse message", e);
 		
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		
 		} catch (InvalidSketchException e) {
 			logger.error("JeeLink device on port " + port + " has a invalid sketch.", e);
 			close();
@@ -416,32 +1032,53 @@ public class JeeLinkDevice implements SerialPortEventListener {
 		
 	}
 	
-	private void clearPendingTasks(final JeeLinkMessage msg) {
+	/** Returns whether a command of this device or one of its peers waits for an answer of the passed address. */
+	private boolean hasPendingCommand(int address) {
 		
-		final Set<JeeLinkMessage> keys;
-		synchronized (pendingTasks) {
-			
-			if (pendingTasks.isEmpty()) {
-				return;
+		// lookups without lock, they run for every foreign frame
+		if (pendingTasks.containsAddress(address)) {
+			return true;
+		}
+		for (JeeLinkDevice peer : peers) {
+			if (peer.pendingTasks.containsAddress(address)) {
+				return true;
 			}
-			
-			keys = new HashSet<JeeLinkMessage>(pendingTasks.size());
-			keys.addAll(pendingTasks.keySet());
 		}
+		return false;
+	}
+	
+	private void clearPendingTasks(final JeeLinkMessage msg) {
 		
-		for (JeeLinkMessage key : keys) {
-			if ((key.getAddress() == msg.getAddress()) && (key.getCommand() == msg.getCommand()) && (key.getParameter() == msg.getParameter())) {
+		synchronized (pendingTasks) {
+			
+			final JeeLinkPendingCommands.Entry entry = pendingTasks.acknowledge(msg);
+			if (entry != null) {
 				
-				synchronized (pendingTasks) {
+				final long now = System.nanoTime();
+				
+				// the answer of a poll can't be told apart from a spontaneous report, so it's only measured
+				if (!entry.isPoll()) {
+					final JeeLinkRetryPolicy policy = getRetryPolicy(msg.getAddress());
+					policy.onSuccess();
 					
-					logger.debug("Remove pending task for address=" + msg.getAddress() + " cmd=" + msg.getCommand());
-					final Future<?> future = pendingTasks.remove(key);
-					if (future != null) {
-						future.cancel(false);
+					// the round-trip time of a retried command is ambiguous
+					if (entry.isSent() && !entry.isRetransmitted()) {
+						policy.addSample(TimeUnit.NANOSECONDS.toMillis(now - entry.getSendTime()));
 					}
 				}
+				
+				// latency includes all retries, a poll is only measured when answered after writing and in time
+				final boolean measured = entry.isPoll()
+						? entry.isSent() && ((now - entry.getSendTime()) <= TimeUnit.MILLISECONDS.toNanos(JeeLinkRetryPolicy.INITIAL_TIMEOUT))
+						: entry.isFirstSent();
+				if (measured) {
+					final long latency = TimeUnit.NANOSECONDS.toMicros(now - entry.getFirstSendTime());
+					statistics.recordAcknowledge(msg.getCommand(), latency);
+					getStatistics(msg.getAddress()).recordAcknowledge(msg.getCommand(), latency);
+				}
+				
+				logger.debug("Remove pending task for address=" + msg.getAddress() + " cmd=" + msg.getCommand());
 			}
 		}
-		
 	}
 }
@@ -0,0 +1,343 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.pca301.internal.jeelink;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openhab.binding.pca301.internal.util.LongHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * This class combines several JeeLink devices to one.<br>
+ * The received messages of all devices are merged and messages which are received by more than one device are delivered once.
+ * The group learns which device receives a PCA301 device best and sends all commands to that address with this device only.
+ *
+ * @author ribbeck
+ * @since 1.9.0
+ */
+public class JeeLinkDeviceGroup {
+
+	private final static Logger logger = LoggerFactory.getLogger(JeeLinkDeviceGroup.class);
+
+	/** Time in which an equal message from another device is a duplicate. */
+	private final static long DUPLICATE_WINDOW = 1000; // in milliseconds
+
+	/** Reception counter limit. When a counter reaches it, all counters of the address are halved to follow changes. */
+	private final static int MAX_RECEPTION_COUNT = 64;
+
+
+	/** Reception statistics and last messages of a PCA301 device. Access must be synchronized over the info. */
+	private static class AddressInfo {
+
+		final int[] receptionCounts;
+
+		boolean state;
+		long stateTime = 0;
+		int stateDevice = -1;
+
+		int power;
+		int consumption;
+		long valuesTime = 0;
+		int valuesDevice = -1;
+
+		AddressInfo(int deviceCount) {
+			receptionCounts = new int[deviceCount];
+		}
+	}
+
+	/** Listener which forwards the events of one device to the group. */
+	private class DeviceListener implements JeeLinkListener {
+
+		private final int index;
+
+		DeviceListener(int index) {
+			this.index = index;
+		}
+
+		@Override
+		public void onStateReceived(int address, int channel, boolean state) {
+			receiveState(index, address, channel, state);
+		}
+
+		@Override
+		public void onValuesReceived(int address, int channel, int power, int consumption) {
+			receiveValues(index, address, channel, power, consumption);
+		}
+	}
+
+
+	private final List<JeeLinkDevice> devices;
+	private final List<DeviceListener> deviceListeners;
+
+	/** Listeners with their addresses. The devices receive the union of all addresses. */
+	private final JeeLinkSubscriptions subscriptions = new JeeLinkSubscriptions();
+
+	/**
+	 * Reception statistics of every known address. The map is copied on write and never modified
+	 * after it is published, so lookups don't lock. Writes must be synchronized over {@link #addressLock}.
+	 */
+	private volatile LongHashMap<AddressInfo> addresses = new LongHashMap<AddressInfo>();
+	private final Object addressLock = new Object();
+
+
+	/**
+	 * Constructor
+	 * @param devices JeeLink devices of the group, at least one
+	 */
+	public JeeLinkDeviceGroup(List<JeeLinkDevice> devices) {
+
+		if (devices.isEmpty()) {
+			throw new IllegalArgumentException("At least one JeeLink device is required");
+		}
+
+		this.devices = new ArrayList<JeeLinkDevice>(devices);
+		this.deviceListeners = new ArrayList<DeviceListener>(devices.size());
+		for (int i = 0; i < devices.size(); i++) {
+			deviceListeners.add(new DeviceListener(i));
+		}
+		
+		// an answer received by any device acknowledges the command of the sending device
+		for (JeeLinkDevice device : this.devices) {
+			final List<JeeLinkDevice> peers = new ArrayList<JeeLinkDevice>(this.devices);
+			peers.remove(device);
+			device.setPeers(peers);
+		}
+	}
+
+	/** Returns the JeeLink devices of the group. */
+	public List<JeeLinkDevice> getDevices() {
+		return devices;
+	}
+
+	/**
+	 * Returns whether at least one device of the group is open or not.
+	 * @return true when one is open, false otherwise
+	 */
+	public boolean isOpen() {
+
+		for (JeeLinkDevice device : devices) {
+			if (device.isOpen()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/** Opens all devices of the group. */
+	public void open() {
+
+		for (int i = 0; i < devices.size(); i++) {
+			final JeeLinkDevice device = devices.get(i);
+			device.addListener(deviceListeners.get(i), subscriptions.getAddresses());
+			device.open();
+		}
+	}
+
+	/** Closes all devices of the group. */
+	public void close() {
+
+		for (int i = 0; i < devices.size(); i++) {
+			final JeeLinkDevice device = devices.get(i);
+			if (device.isOpen()) {
+				device.close();
+			}
+			device.removeListener(deviceListeners.get(i));
+		}
+
+		synchronized (addressLock) {
+			addresses = new LongHashMap<AddressInfo>();
+		}
+	}
+
+	/**
+	 * Adds the specified JeeLink listener to receive device events of all addresses.
+	 * @param listener the JeeLink listener
+	 */
+	public void addListener(JeeLinkListener listener) {
+		addListener(listener, null);
+	}
+	
+	/**
+	 * Adds the specified JeeLink listener to receive device events of the passed addresses.
+	 * A listener which is added already receives the passed addresses from now on.
+	 * @param listener the JeeLink listener
+	 * @param addresses PCA301 device addresses, null for all addresses
+	 */
+	public void addListener(JeeLinkListener listener, int[] addresses) {
+		subscriptions.subscribe(listener, addresses);
+		updateDeviceSubscriptions();
+	}
+
+	/**
+	 * Removes the specified JeeLink listener so that it no longer receives device events.
+	 * @param listener the JeeLink listener
+	 */
+	public void removeListener(JeeLinkListener listener) {
+		subscriptions.unsubscribe(listener);
+		updateDeviceSubscriptions();
+	}
+	
+	/** Subscribes the addresses of all group listeners at every open device. */
+	private void updateDeviceSubscriptions() {
+		
+		final int[] addresses = subscriptions.getAddresses();
+		for (int i = 0; i < devices.size(); i++) {
+			final JeeLinkDevice device = devices.get(i);
+			if (device.isOpen()) {
+				device.addListener(deviceListeners.get(i), addresses);
+			}
+		}
+	}
+
+	/**
+	 * Sends a command to list all known PCA301 devices with every device of the group.
+	 * @see JeeLinkDevice#listDevices()
+	 */
+	public void listDevices() {
+
+		for (JeeLinkDevice device : devices) {
+			device.listDevices();
+		}
+	}
+
+	/**
+	 * Change the switching state of device with specified address and channel.
+	 * @see JeeLinkDevice#setState(int, int, boolean)
+	 */
+	public void setState(int address, int channel, boolean state) {
+		getDevice(address).setState(address, channel, state);
+	}
+
+	/**
+	 * Sends a command to device with specified address and channel to response current values.
+	 * @see JeeLinkDevice#refresh(int, int)
+	 */
+	public void refresh(int address, int channel) {
+		getDevice(address).refresh(address, channel);
+	}
+
+	/**
+	 * Resets the total consumption of device with specified address and channel
+	 * @see JeeLinkDevice#resetConsumption(int, int)
+	 */
+	public void resetConsumption(int address, int channel) {
+		getDevice(address).resetConsumption(address, channel);
+	}
+
+	/**
+	 * Returns the device which receives the passed address best.
+	 * @param address PCA301 device address
+	 * @return device with best reception or the first device, when the address is unknown
+	 */
+	JeeLinkDevice getDevice(int address) {
+
+		int best = 0;
+		final AddressInfo info = addresses.get(address);
+		if (info != null) {
+			synchronized (info) {
+				for (int i = 1; i < info.receptionCounts.length; i++) {
+					if (info.receptionCounts[i] > info.receptionCounts[best]) {
+						best = i;
+					}
+				}
+			}
+		}
+
+		// prefer a connected device if the best is not available
+		JeeLinkDevice device = devices.get(best);
+		if (!device.isConnected()) {
+			for (JeeLinkDevice other : devices) {
+				if (other.isConnected()) {
+					return other;
+				}
+			}
+		}
+		return device;
+	}
+
+	private void receiveState(int index, int address, int channel, boolean state) {
+
+		final long now = System.currentTimeMillis();
+
+		final AddressInfo info = getAddressInfo(address);
+		synchronized (info) {
+			countReception(info, index);
+
+			if ((info.stateDevice != index) && (info.state == state) && ((now - info.stateTime) < DUPLICATE_WINDOW)) {
+				return;
+			}
+
+			info.state = state;
+			info.stateTime = now;
+			info.stateDevice = index;
+		}
+
+		for (JeeLinkListener listener : subscriptions.getListeners(address)) {
+			listener.onStateReceived(address, channel, state);
+		}
+	}
+
+	private void receiveValues(int index, int address, int channel, int power, int consumption) {
+
+		final long now = System.currentTimeMillis();
+
+		final AddressInfo info = getAddressInfo(address);
+		synchronized (info) {
+
+			if ((info.valuesDevice != index) && (info.power == power) && (info.consumption == consumption)
+					&& ((now - info.valuesTime) < DUPLICATE_WINDOW)) {
+				return;
+			}
+
+			info.power = power;
+			info.consumption = consumption;
+			info.valuesTime = now;
+			info.valuesDevice = index;
+		}
+
+		for (JeeLinkListener listener : subscriptions.getListeners(address)) {
+			listener.onValuesReceived(address, channel, power, consumption);
+		}
+	}
+
+	/** Returns the info of passed address and creates it if necessary. */
+	private AddressInfo getAddressInfo(int address) {
+
+		AddressInfo info = addresses.get(address);
+		if (info == null) {
+			synchronized (addressLock) {
+				info = addresses.get(address);
+				if (info == null) {
+					info = new AddressInfo(devices.size());
+					final LongHashMap<AddressInfo> copy = new LongHashMap<AddressInfo>(addresses);
+					copy.put(address, info);
+					addresses = copy;
+				}
+			}
+		}
+		return info;
+	}
+
+	/** Counts a reception of the device with passed index, access must be synchronized over the info. */
+	private void countReception(AddressInfo info, int index) {
+
+		final int[] counts = info.receptionCounts;
+		if (++counts[index] >= MAX_RECEPTION_COUNT) {
+			for (int i = 0; i < counts.length; i++) {
+				counts[i] /= 2;
+			}
+		}
+
+		if (logger.isTraceEnabled()) {
+			logger.trace("Reception of device " + index + ": " + counts[index]);
+		}
+	}
+}
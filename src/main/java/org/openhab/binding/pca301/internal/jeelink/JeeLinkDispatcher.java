@@ -0,0 +1,319 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.pca301.internal.jeelink;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.openhab.binding.pca301.internal.util.LongHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Task which delivers received frames to the listeners of a JeeLink device.<br>
+ * The reader puts decoded frames into a bounded ring buffer and continues reading,
+ * the frames are taken and delivered in order of reception by a dedicated thread.
+ * When the buffer is full the {@link OverflowPolicy} decides whether a values frame is dropped
+ * or the reader waits. A values frame carries the switching state as well, so it is only dropped
+ * when a newer frame of the same address with the same state is buffered. No state change is lost.
+ * @author ribbeck
+ * @since 1.9.0
+ */
+public class JeeLinkDispatcher implements Runnable {
+
+	private final static Logger logger = LoggerFactory.getLogger(JeeLinkDispatcher.class);
+
+	/** Behavior when a frame is received while the buffer is full. */
+	public enum OverflowPolicy {
+		/** The reader waits until the listeners took a frame. */
+		BLOCK,
+		/** The oldest values frame which is superseded by a newer frame with same state is dropped, the reader waits when there is none. */
+		DROP_OLDEST_VALUES
+	}
+
+	private final static byte KIND_STATE = 0;
+	private final static byte KIND_VALUES = 1;
+
+	private final int capacity;
+	private final JeeLinkSubscriptions subscriptions;
+	private volatile OverflowPolicy policy = OverflowPolicy.DROP_OLDEST_VALUES;
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition notEmpty = lock.newCondition();
+	private final Condition notFull = lock.newCondition();
+
+	// ring buffer of frames, access must be guarded by lock
+	private final byte[] kinds;
+	private final int[] addresses;
+	private final int[] channels;
+	private final boolean[] states;
+	private final int[] powers;
+	private final int[] consumptions;
+	private int head = 0;
+	private int size = 0;
+	private long takenCount = 0;
+
+	/** Number of frames which were delivered to all listeners, only written by the dispatcher thread. */
+	private volatile long deliveredCount = 0;
+
+	// statistics, access must be guarded by lock
+	private int maxSize = 0;
+	private long droppedCount = 0;
+	private long blockedCount = 0;
+
+	/** State of the next newer frame of every address while the buffer is searched, access must be guarded by lock. */
+	private final LongHashMap<Boolean> newerStates = new LongHashMap<Boolean>();
+
+	private volatile boolean running = true;
+
+
+	/**
+	 * Constructor
+	 * @param capacity maximal number of buffered frames
+	 * @param subscriptions listeners which receive the frames of their addresses
+	 */
+	public JeeLinkDispatcher(int capacity, JeeLinkSubscriptions subscriptions) {
+		this.capacity = capacity;
+		this.subscriptions = subscriptions;
+
+		kinds = new byte[capacity];
+		addresses = new int[capacity];
+		channels = new int[capacity];
+		states = new boolean[capacity];
+		powers = new int[capacity];
+		consumptions = new int[capacity];
+	}
+
+	/** Sets the behavior when the buffer is full. */
+	public void setOverflowPolicy(OverflowPolicy policy) {
+		this.policy = policy;
+	}
+
+	/** Stops the dispatcher and releases a waiting reader. The thread must be interrupted if it waits for frames. */
+	public void stop() {
+
+		lock.lock();
+		try {
+			running = false;
+			notFull.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Inserts a frame with the state of a PCA301 device.
+	 * @return true when the frame was buffered, false when the dispatcher is stopped
+	 * @throws InterruptedException if interrupted while waiting for free space
+	 */
+	public boolean offerState(int address, int channel, boolean state) throws InterruptedException {
+		return offer(KIND_STATE, address, channel, state, 0, 0);
+	}
+
+	/**
+	 * Inserts a frame with the state and the values of a PCA301 device.
+	 * @return true when the frame was buffered, false when the dispatcher is stopped
+	 * @throws InterruptedException if interrupted while waiting for free space
+	 */
+	public boolean offerValues(int address, int channel, boolean state, int power, int consumption)
+			throws InterruptedException {
+		return offer(KIND_VALUES, address, channel, state, power, consumption);
+	}
+
+	private boolean offer(byte kind, int address, int channel, boolean state, int power, int consumption)
+			throws InterruptedException {
+
+		lock.lockInterruptibly();
+		try {
+			while (running && (size == capacity)) {
+				if ((policy == OverflowPolicy.DROP_OLDEST_VALUES) && dropOldestValues()) {
+					break;
+				}
+				blockedCount++;
+				notFull.await();
+			}
+			if (!running) {
+				return false;
+			}
+
+			final int i = (head + size) % capacity;
+			kinds[i] = kind;
+			addresses[i] = address;
+			channels[i] = channel;
+			states[i] = state;
+			powers[i] = power;
+			consumptions[i] = consumption;
+
+			if (++size > maxSize) {
+				maxSize = size;
+			}
+			notEmpty.signal();
+			return true;
+
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Removes the oldest values frame which is followed by a newer frame of the same address and state, lock must be held.
+	 * @return true when a frame was removed, false when every frame carries the latest state or a state change
+	 */
+	private boolean dropOldestValues() {
+
+		// search from newest to oldest, so the state of the next newer frame of an address is known
+		int drop = -1;
+		newerStates.clear();
+		for (int n = size - 1; n >= 0; n--) {
+			final int i = (head + n) % capacity;
+			final Boolean newerState = newerStates.get(addresses[i]);
+			if ((kinds[i] == KIND_VALUES) && (newerState != null) && (newerState.booleanValue() == states[i])) {
+				drop = n;
+			}
+			newerStates.put(addresses[i], Boolean.valueOf(states[i]));
+		}
+		newerStates.clear();
+
+		if (drop < 0) {
+			return false;
+		}
+
+		final int address = addresses[(head + drop) % capacity];
+
+		// move older frames one slot towards the tail
+		for (int m = drop; m > 0; m--) {
+			copy((head + m - 1) % capacity, (head + m) % capacity);
+		}
+		head = (head + 1) % capacity;
+		size--;
+		droppedCount++;
+
+		if (logger.isDebugEnabled()) {
+			logger.debug("Dispatch buffer is full, drop values of address " + address);
+		}
+		return true;
+	}
+
+	private void copy(int from, int to) {
+		kinds[to] = kinds[from];
+		addresses[to] = addresses[from];
+		channels[to] = channels[from];
+		states[to] = states[from];
+		powers[to] = powers[from];
+		consumptions[to] = consumptions[from];
+	}
+
+	@Override
+	public void run() {
+
+		while (running) {
+
+			final byte kind;
+			final int address;
+			final int channel;
+			final boolean state;
+			final int power;
+			final int consumption;
+
+			try {
+				lock.lockInterruptibly();
+			} catch (InterruptedException e) {
+				return;
+			}
+			try {
+				while (size == 0) {
+					notEmpty.await();
+				}
+
+				kind = kinds[head];
+				address = addresses[head];
+				channel = channels[head];
+				state = states[head];
+				power = powers[head];
+				consumption = consumptions[head];
+				head = (head + 1) % capacity;
+				size--;
+				takenCount++;
+				notFull.signal();
+
+			} catch (InterruptedException e) {
+				return;
+			} finally {
+				lock.unlock();
+			}
+
+			for (JeeLinkListener listener : subscriptions.getListeners(address)) {
+				try {
+					listener.onStateReceived(address, channel, state);
+					if (kind == KIND_VALUES) {
+						listener.onValuesReceived(address, channel, power, consumption);
+					}
+				} catch (RuntimeException e) {
+					logger.error("Listener failed to process frame of address " + address, e);
+				}
+			}
+			deliveredCount++;
+		}
+	}
+
+	/** Returns true when every buffered frame was delivered to the listeners. */
+	public boolean isIdle() {
+
+		lock.lock();
+		try {
+			return (size == 0) && (deliveredCount == takenCount);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/** Returns the number of buffered frames. */
+	public int size() {
+
+		lock.lock();
+		try {
+			return size;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/** Returns the maximal number of frames which were buffered at once. */
+	public int getMaxSize() {
+
+		lock.lock();
+		try {
+			return maxSize;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/** Returns the number of values frames which were dropped because the buffer was full. */
+	public long getDroppedCount() {
+
+		lock.lock();
+		try {
+			return droppedCount;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/** Returns the number of times the reader waited because the buffer was full. */
+	public long getBlockedCount() {
+
+		lock.lock();
+		try {
+			return blockedCount;
+		} finally {
+			lock.unlock();
+		}
+	}
+}
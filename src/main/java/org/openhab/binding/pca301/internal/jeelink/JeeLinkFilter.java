@@ -18,10 +18,10 @@ public interface JeeLinkFilter {
 
 	/**
 	 * Converts a JeeLink text line into a message object.
-	 * @param line text line
+	 * @param line text line which is only valid during this call
 	 * @return a message object or null
 	 * @throws Exception An unexpected error occured.
 	 */
-	JeeLinkMessage processLine(String line) throws Exception;
+	JeeLinkMessage processLine(JeeLinkLine line) throws Exception;
 }
  
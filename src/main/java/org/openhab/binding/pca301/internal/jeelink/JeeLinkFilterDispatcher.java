@@ -0,0 +1,131 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.pca301.internal.jeelink;
+
+/**
+ * A filter which passes a line to the filter registered for its prefix.<br>
+ * The filters are indexed by the first character of their prefix, so a line is compared with the prefixes
+ * of the same first character only. Filters without prefix are tried in order of registration
+ * when no prefix matches. Filters may be added while lines are processed: the tables are copied on every change
+ * and read without lock.
+ * @author ribbeck
+ * @since 1.9.0
+ */
+public class JeeLinkFilterDispatcher implements JeeLinkFilter {
+
+	/** Filter with its prefix. */
+	private static class Entry {
+
+		final byte[] prefix;
+		final JeeLinkFilter filter;
+
+		Entry(byte[] prefix, JeeLinkFilter filter) {
+			this.prefix = prefix;
+			this.filter = filter;
+		}
+
+		boolean matches(JeeLinkLine line) {
+
+			if (line.length() < prefix.length) {
+				return false;
+			}
+			for (int i = 1; i < prefix.length; i++) {
+				if (line.byteAt(i) != prefix[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	private final static int TABLE_SIZE = 128;
+
+	/** Filters with prefix, indexed by first ASCII character of their prefix. Replaced on every change. */
+	private volatile Entry[][] table = new Entry[TABLE_SIZE][];
+
+	/** Filters without prefix in order of registration. Replaced on every change. */
+	private volatile JeeLinkFilter[] fallbacks = new JeeLinkFilter[0];
+
+
+	/**
+	 * Registers a filter for lines which start with the passed prefix.<br>
+	 * Longer prefixes are compared first, so the most specific filter processes the line.
+	 * @param prefix ASCII prefix of the lines, at least one character
+	 * @param filter the filter
+	 */
+	public synchronized void addFilter(String prefix, JeeLinkFilter filter) {
+
+		if ((prefix == null) || prefix.isEmpty() || (prefix.charAt(0) >= TABLE_SIZE)) {
+			throw new IllegalArgumentException("Invalid prefix: " + prefix);
+		}
+
+		final byte[] bytes = new byte[prefix.length()];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = (byte) prefix.charAt(i);
+		}
+
+		final int index = bytes[0];
+		final Entry[][] newTable = table.clone();
+		final Entry[] entries = (newTable[index] != null) ? newTable[index] : new Entry[0];
+
+		// insert sorted by descending prefix length
+		final Entry[] newEntries = new Entry[entries.length + 1];
+		int pos = 0;
+		while ((pos < entries.length) && (entries[pos].prefix.length >= bytes.length)) {
+			newEntries[pos] = entries[pos];
+			pos++;
+		}
+		newEntries[pos] = new Entry(bytes, filter);
+		System.arraycopy(entries, pos, newEntries, pos + 1, entries.length - pos);
+
+		newTable[index] = newEntries;
+		table = newTable;
+	}
+
+	/**
+	 * Registers a filter which is tried for all lines without matching prefix.
+	 * @param filter the filter
+	 */
+	public synchronized void addFilter(JeeLinkFilter filter) {
+
+		final JeeLinkFilter[] newFallbacks = new JeeLinkFilter[fallbacks.length + 1];
+		System.arraycopy(fallbacks, 0, newFallbacks, 0, fallbacks.length);
+		newFallbacks[fallbacks.length] = filter;
+		fallbacks = newFallbacks;
+	}
+
+	@Override
+	public JeeLinkMessage processLine(JeeLinkLine line) throws Exception {
+
+		if (line.length() == 0) {
+			return null;
+		}
+
+		final int first = line.byteAt(0);
+		if ((first >= 0) && (first < TABLE_SIZE)) {
+
+			final Entry[] entries = table[first];
+			if (entries != null) {
+				for (Entry entry : entries) {
+					if (entry.matches(line)) {
+						return entry.filter.processLine(line);
+					}
+				}
+			}
+		}
+
+		for (JeeLinkFilter filter : fallbacks) {
+			final JeeLinkMessage msg = filter.processLine(line);
+			if (msg != null) {
+				return msg;
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,101 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.pca301.internal.jeelink;
+
+import java.text.ParseException;
+
+/**
+ * A JeeLink filter which parses the message payload behind a fixed prefix without regular expressions.<br>
+ * Optionally the prefix is followed by numbers and a separator, e.g. {@code L 24 1 5 : <payload>}.
+ * @author ribbeck
+ * @since 1.9.0
+ */
+public class JeeLinkFilterPayload implements JeeLinkFilter {
+
+	private final String prefix;
+	private final String separator;
+	private final JeeLinkAddressFilter addressFilter;
+
+
+	/**
+	 * Constructor
+	 * @param prefix ASCII prefix of the line
+	 * @param separator ASCII separator between the numbers behind the prefix and the payload, 
+	 *   the numbers are separated by single spaces, 
+	 *   null if the payload follows the prefix directly
+	 */
+	public JeeLinkFilterPayload(String prefix, String separator) {
+		this(prefix, separator, null);
+	}
+
+	/**
+	 * Constructor
+	 * @param prefix ASCII prefix of the line
+	 * @param separator ASCII separator between the numbers behind the prefix and the payload, 
+	 *   the numbers are separated by single spaces, 
+	 *   null if the payload follows the prefix directly
+	 * @param addressFilter filter which discards messages of unknown addresses while parsing, null to accept all
+	 */
+	public JeeLinkFilterPayload(String prefix, String separator, JeeLinkAddressFilter addressFilter) {
+		this.prefix = prefix;
+		this.separator = separator;
+		this.addressFilter = addressFilter;
+	}
+
+	/** Returns the prefix of the lines. */
+	public String getPrefix() {
+		return prefix;
+	}
+
+	@Override
+	public JeeLinkMessage processLine(JeeLinkLine line) throws ParseException {
+
+		final int length = line.length();
+		if (!regionMatches(line, 0, prefix)) {
+			return null;
+		}
+
+		int start = prefix.length();
+		if (separator != null) {
+
+			// skip numbers separated by single spaces until separator, at least one digit is required
+			boolean digit = false;
+			while (!digit || !regionMatches(line, start, separator)) {
+				if (start >= length) {
+					return null;
+				}
+				final char c = line.charAt(start);
+				if ((c >= '0') && (c <= '9')) {
+					digit = true;
+				} else if ((c == ' ') && digit) {
+					digit = false;
+				} else {
+					return null;
+				}
+				start++;
+			}
+			start += separator.length();
+		}
+
+		return JeeLinkMessage.parseSerialBytes(line.getBuffer(), line.getOffset() + start, length - start, addressFilter);
+	}
+
+	private static boolean regionMatches(JeeLinkLine line, int offset, String text) {
+
+		if (line.length() - offset < text.length()) {
+			return false;
+		}
+		for (int i = 0; i < text.length(); i++) {
+			if (line.charAt(offset + i) != text.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
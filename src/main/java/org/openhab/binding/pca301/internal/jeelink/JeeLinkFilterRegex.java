@@ -24,7 +24,7 @@ public class JeeLinkFilterRegex implements JeeLinkFilter {
 	/**
 	 * Constructor to initialize the filter with a regular expression.<br>
 	 * The expression must match the complete line. 
-	 * The first group must capture the raw message which can be passe to {@link JeeLinkMessage#parseSerialString(String)}.
+	 * The first group must capture the raw message which can be passe to {@link JeeLinkMessage#parseSerialBytes(byte[], int, int)}.
 	 * @param regex Regular expression
 	 */
 	public JeeLinkFilterRegex(String regex) {
@@ -32,12 +32,14 @@ public class JeeLinkFilterRegex implements JeeLinkFilter {
 	}
 	
 	@Override
-	public JeeLinkMessage processLine(String line) throws ParseException {
+	public JeeLinkMessage processLine(JeeLinkLine line) throws ParseException {
 		
 		final Matcher matcher = pattern.matcher(line);
 		if (matcher.matches()) {
-			final String data = matcher.group(1);
-			return JeeLinkMessage.parseSerialString(data);
+			// parse the captured message directly from receive buffer
+			final int start = matcher.start(1);
+			final int end = matcher.end(1);
+			return JeeLinkMessage.parseSerialBytes(line.getBuffer(), line.getOffset() + start, end - start);
 		}
 		return null;
 	}
@@ -38,9 +38,10 @@ public class JeeLinkFilterSketch implements JeeLinkFilter {
 	}
 		
 	@Override
-	public JeeLinkMessage processLine(String line) throws InvalidSketchException {
+	public JeeLinkMessage processLine(JeeLinkLine line) throws InvalidSketchException {
 		
-		if ((line != null) && line.startsWith("[") && line.endsWith("]")) {
+		final int length = (line != null) ? line.length() : 0;
+		if ((length > 0) && (line.charAt(0) == '[') && (line.charAt(length - 1) == ']')) {
 			
 			final Matcher matcher = pattern.matcher(line);
 			if (!matcher.find()) {
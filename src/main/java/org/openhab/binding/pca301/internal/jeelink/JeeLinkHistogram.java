@@ -0,0 +1,122 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.pca301.internal.jeelink;
+
+/**
+ * Histogram of latencies with log-linear buckets like HdrHistogram.<br>
+ * Every power of two is divided into 16 linear sub buckets, so a recorded value is kept with a relative
+ * precision of about 6 percent. Values from 0 to 2^36 microseconds (about 19 hours) are tracked, larger
+ * values are counted in the last bucket. Recording is constant time and doesn't allocate.
+ * @author ribbeck
+ * @since 1.9.0
+ */
+public class JeeLinkHistogram {
+
+	/** Number of bits of the sub bucket index. */
+	private final static int SUB_BUCKET_BITS = 5;
+	private final static int SUB_BUCKET_HALF = 1 << (SUB_BUCKET_BITS - 1);
+	/** Largest trackable value. */
+	private final static long MAX_VALUE = (1L << 36) - 1;
+
+	private final long[] counts = new long[indexOf(MAX_VALUE) + 1];
+	private long totalCount = 0;
+	private long totalValue = 0;
+	private long maxValue = 0;
+
+
+	/**
+	 * Records a value.
+	 * @param value value in microseconds, negative values are recorded as zero
+	 */
+	public synchronized void record(long value) {
+
+		final long v = Math.max(0, value);
+		counts[indexOf(Math.min(v, MAX_VALUE))]++;
+		totalCount++;
+		totalValue += v;
+		if (v > maxValue) {
+			maxValue = v;
+		}
+	}
+
+	/** Returns the number of recorded values. */
+	public synchronized long getCount() {
+		return totalCount;
+	}
+
+	/** Returns the largest recorded value in microseconds. */
+	public synchronized long getMax() {
+		return maxValue;
+	}
+
+	/** Returns the mean of all recorded values in microseconds. */
+	public synchronized double getMean() {
+		return (totalCount > 0) ? (double) totalValue / totalCount : 0;
+	}
+
+	/**
+	 * Returns the value at the given percentile.
+	 * @param percentile percentile between 0 and 100
+	 * @return largest value of the bucket which contains the percentile in microseconds, 0 if nothing was recorded
+	 */
+	public synchronized long getValueAtPercentile(double percentile) {
+
+		if (totalCount == 0) {
+			return 0;
+		}
+
+		final long rank = Math.max(1, (long) Math.ceil(Math.min(100, percentile) / 100 * totalCount));
+		long count = 0;
+		for (int i = 0; i < counts.length; i++) {
+			count += counts[i];
+			if (count >= rank) {
+				return Math.min(highestValueOf(i), maxValue);
+			}
+		}
+		return maxValue;
+	}
+
+	/** Removes all recorded values. */
+	public synchronized void reset() {
+
+		for (int i = 0; i < counts.length; i++) {
+			counts[i] = 0;
+		}
+		totalCount = 0;
+		totalValue = 0;
+		maxValue = 0;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("count=%d p50=%.1fms p99=%.1fms max=%.1fms", getCount(),
+				getValueAtPercentile(50) / 1000.0, getValueAtPercentile(99) / 1000.0, getMax() / 1000.0);
+	}
+
+	/** Returns the bucket index of a value. */
+	private static int indexOf(long value) {
+
+		if (value < (1 << SUB_BUCKET_BITS)) {
+			return (int) value;
+		}
+		final int shift = (63 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS + 1;
+		return (shift * SUB_BUCKET_HALF) + (int) (value >>> shift);
+	}
+
+	/** Returns the largest value of the bucket with passed index. */
+	private static long highestValueOf(int index) {
+
+		if (index < (1 << SUB_BUCKET_BITS)) {
+			return index;
+		}
+		final int shift = (index / SUB_BUCKET_HALF) - 1;
+		final long subBucket = index - (shift * SUB_BUCKET_HALF);
+		return ((subBucket + 1) << shift) - 1;
+	}
+}
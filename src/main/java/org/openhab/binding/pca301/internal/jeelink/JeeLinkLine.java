@@ -0,0 +1,110 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.pca301.internal.jeelink;
+
+/**
+ * A text line received from a JeeLink device.<br>
+ * The line is a view on the ASCII bytes of the receive buffer. It is reused for every line,
+ * so filters must not keep a reference to it. Use {@link #toString()} to get a copy.
+ * @author ribbeck
+ * @since 1.9.0
+ */
+public final class JeeLinkLine implements CharSequence {
+
+	private byte[] buffer;
+	private int offset;
+	private int length;
+
+
+	/** Constructor to create an empty line. */
+	public JeeLinkLine() {
+		set(new byte[0], 0, 0);
+	}
+
+	/**
+	 * Constructor to create a line with the content of the passed text.
+	 * @param text ASCII text without line break
+	 */
+	public JeeLinkLine(String text) {
+		final byte[] bytes = new byte[text.length()];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = (byte) text.charAt(i);
+		}
+		set(bytes, 0, bytes.length);
+	}
+
+	/**
+	 * Constructor to create a line with the passed bytes.
+	 * @param bytes ASCII bytes without line break, which are not copied
+	 */
+	public JeeLinkLine(byte[] bytes) {
+		set(bytes, 0, bytes.length);
+	}
+
+	/**
+	 * Sets the content of the line.
+	 * @param buffer buffer with ASCII bytes
+	 * @param offset index of the first byte of the line
+	 * @param length number of bytes without line break
+	 */
+	void set(byte[] buffer, int offset, int length) {
+		this.buffer = buffer;
+		this.offset = offset;
+		this.length = length;
+	}
+
+	/** Returns the buffer which contains the line. */
+	public byte[] getBuffer() {
+		return buffer;
+	}
+
+	/** Returns the index of the first byte of the line within {@link #getBuffer()}. */
+	public int getOffset() {
+		return offset;
+	}
+
+	/** Returns the byte at the specified index of the line. */
+	public byte byteAt(int index) {
+		return buffer[offset + index];
+	}
+
+	@Override
+	public int length() {
+		return length;
+	}
+
+	@Override
+	public char charAt(int index) {
+		if ((index < 0) || (index >= length)) {
+			throw new IndexOutOfBoundsException(String.valueOf(index));
+		}
+		return (char) (buffer[offset + index] & 0xff);
+	}
+
+	@Override
+	public CharSequence subSequence(int start, int end) {
+		if ((start < 0) || (end > length) || (start > end)) {
+			throw new IndexOutOfBoundsException(start + ", " + end);
+		}
+		return toString(start, end);
+	}
+
+	@Override
+	public String toString() {
+		return toString(0, length);
+	}
+
+	private String toString(int start, int end) {
+		final char[] chars = new char[end - start];
+		for (int i = 0; i < chars.length; i++) {
+			chars[i] = (char) (buffer[offset + start + i] & 0xff);
+		}
+		return new String(chars);
+	}
+}
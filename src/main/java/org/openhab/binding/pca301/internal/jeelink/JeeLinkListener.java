@@ -27,9 +27,9 @@ public interface JeeLinkListener {
 	 * Will be called when a new values message received.
 	 * @param address PCA301 device address
 	 * @param channel communication channel
-	 * @param power current power in W (watt)
-	 * @param consumption total consumption in kWh (kilowatt hour)
+	 * @param power current power in 0.1 W (watt), see {@link JeeLinkMessage#POWER_SCALE}
+	 * @param consumption total consumption in 0.01 kWh (kilowatt hour), see {@link JeeLinkMessage#CONSUMPTION_SCALE}
 	 */
-	void onValuesReceived(int address, int channel, double power, double consumption);
+	void onValuesReceived(int address, int channel, int power, int consumption);
 	
 }
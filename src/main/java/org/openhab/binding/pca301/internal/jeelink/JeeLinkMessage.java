@@ -33,7 +33,16 @@ public class JeeLinkMessage implements Comparable<JeeLinkMessage> {
 	/** In combination with {@link #CMD_STATE} changes the switching state to on. */
 	public final static int PARAM_ON		= 0x01;
 	
+	/** Number of decimal places of the raw power, which is given in 0.1 W. */
+	public final static int POWER_SCALE			= 1;
+	/** Number of decimal places of the raw consumption, which is given in 0.01 kWh. */
+	public final static int CONSUMPTION_SCALE	= 2;
+	
 	private final static String MSG_FORMAT = "%d,%d,%d,%d,%d,%d,255,255,255,255s";
+	/** Constant end of {@link #MSG_FORMAT} after the last separator. */
+	private final static byte[] MSG_SUFFIX = {'2', '5', '5', ',', '2', '5', '5', ',', '2', '5', '5', ',', '2', '5', '5', 's'};
+	/** Maximal length of a message with six 32 bit integers. */
+	private final static int MSG_MAX_LENGTH = 6 * 12 + 16;
 	
 	int address;
 	int channel;
@@ -87,6 +96,16 @@ public class JeeLinkMessage implements Comparable<JeeLinkMessage> {
 	public double getConsumption() {
 		return consumption / 100.0;
 	}
+
+	/** Returns the current power in 0.1 W, see {@link #POWER_SCALE}. */
+	public int getRawPower() {
+		return power;
+	}
+
+	/** Returns the total power consumption in 0.01 kWh, see {@link #CONSUMPTION_SCALE}. */
+	public int getRawConsumption() {
+		return consumption;
+	}
 	
 	@Override
 	public boolean equals(Object obj) {
@@ -104,6 +123,17 @@ public class JeeLinkMessage implements Comparable<JeeLinkMessage> {
 		return false;
 	}
 	
+	@Override
+	public int hashCode() {
+		int hash = address;
+		hash = 31 * hash + channel;
+		hash = 31 * hash + cmd;
+		hash = 31 * hash + param;
+		hash = 31 * hash + power;
+		hash = 31 * hash + consumption;
+		return hash;
+	}
+	
 	@Override
 	public int compareTo(JeeLinkMessage o) {
 		if (o == null) {
@@ -145,6 +175,56 @@ public class JeeLinkMessage implements Comparable<JeeLinkMessage> {
 		return String.format(MSG_FORMAT, channel, cmd, addressBytes[0], addressBytes[1], addressBytes[2], param);
 	}
 
+	/**
+	 * Returns the message as ASCII bytes which can be send to serial port.<br>
+	 * The result is equal to the bytes of {@link #toSerialString()}, but the message is encoded without formatter.
+	 * @see #MSG_FORMAT
+	 */
+	public byte[] toSerialBytes() {
+		
+		final byte[] buffer = new byte[MSG_MAX_LENGTH];
+		int index = 0;
+		
+		index = appendByte(buffer, index, channel);
+		index = appendByte(buffer, index, cmd);
+		index = appendByte(buffer, index, (address >> 16) & 0xff);
+		index = appendByte(buffer, index, (address >>  8) & 0xff);
+		index = appendByte(buffer, index, (address      ) & 0xff);
+		index = appendByte(buffer, index, param);
+		for (int i = 0; i < MSG_SUFFIX.length; i++) {
+			buffer[index++] = MSG_SUFFIX[i];
+		}
+		
+		final byte[] result = new byte[index];
+		System.arraycopy(buffer, 0, result, 0, index);
+		return result;
+	}
+	
+	/** Appends a number with separator as ASCII decimal. */
+	private static int appendByte(byte[] buffer, int index, int value) {
+		
+		if (value < 0) {
+			buffer[index++] = '-';
+			value = -value;
+		}
+		
+		final int start = index;
+		do {
+			buffer[index++] = (byte) ('0' + (value % 10));
+			value /= 10;
+		} while (value > 0);
+		
+		// reverse digits
+		for (int i = start, j = index - 1; i < j; i++, j--) {
+			final byte b = buffer[i];
+			buffer[i] = buffer[j];
+			buffer[j] = b;
+		}
+		
+		buffer[index++] = ',';
+		return index;
+	}
+	
 	/**
 	 * Parses a string received from from serial port and creates a message.<br>
 	 * The message must be in format:<br>
@@ -192,6 +272,124 @@ public class JeeLinkMessage implements Comparable<JeeLinkMessage> {
 		return msg;
 	}
 	
+	/**
+	 * Parses ASCII bytes received from from serial port and creates a message.<br>
+	 * The bytes are parsed in place without intermediate strings or arrays.
+	 * The message must be in same format like for {@link #parseSerialString(String)}.
+	 * @param data buffer with ASCII bytes
+	 * @param offset index of first byte of the message
+	 * @param length number of bytes of the message
+	 * @return the message as object
+	 * @throws ParseException The data was not in correct format
+	 */
+	public static JeeLinkMessage parseSerialBytes(byte[] data, int offset, int length) throws ParseException {
+		return parseSerialBytes(data, offset, length, null);
+	}
+	
+	/**
+	 * Parses ASCII bytes received from from serial port and creates a message, 
+	 * if the address is accepted by the passed filter.<br>
+	 * The remaining bytes of a discarded message are not parsed. Pairing messages are never discarded.
+	 * @param data buffer with ASCII bytes
+	 * @param offset index of first byte of the message
+	 * @param length number of bytes of the message
+	 * @param addressFilter filter of addresses, null to accept all
+	 * @return the message as object or null when the address was discarded
+	 * @throws ParseException The data was not in correct format
+	 */
+	public static JeeLinkMessage parseSerialBytes(byte[] data, int offset, int length, JeeLinkAddressFilter addressFilter) 
+			throws ParseException {
+		
+		int channel = 0;
+		int cmd = 0;
+		int address = 0;
+		int param = 0;
+		int power = 0;
+		int consumption = 0;
+		
+		// index of current field and its value, -1 when no digit was read yet
+		int field = 0;
+		int value = -1;
+		
+		final int end = offset + length;
+		for (int i = offset; i <= end; i++) {
+			
+			// treat end of data like a separator
+			final int c = (i < end) ? data[i] : ' ';
+			
+			if ((c >= '0') && (c <= '9')) {
+				value = ((value < 0) ? 0 : (value * 10)) + (c - '0');
+				if (value > 0xff) {
+					throw createParseException(data, offset, length, i);
+				}
+				
+			} else if ((c == ' ') || (c == '\t') || (c == '\r') || (c == '\n')) {
+				if (value < 0) {
+					continue;
+				}
+				
+				switch (field++) {
+				case 0:
+					channel = value;
+					break;
+				case 1:
+					cmd = value;
+					break;
+				case 2:
+				case 3:
+					address = (address << 8) | value;
+					break;
+				case 4:
+					address = (address << 8) | value;
+					// skip the rest of foreign frames
+					if ((addressFilter != null) && (cmd != CMD_PAIRING) && !addressFilter.accept(address)) {
+						return null;
+					}
+					break;
+				case 5:
+					param = value;
+					break;
+				case 6:
+				case 7:
+					power = (power << 8) | value;
+					break;
+				case 8:
+				case 9:
+					consumption = (consumption << 8) | value;
+					break;
+				default:
+					throw createParseException(data, offset, length, i);
+				}
+				value = -1;
+				
+			} else {
+				throw createParseException(data, offset, length, i);
+			}
+		}
+		
+		if (field != 10) {
+			throw createParseException(data, offset, length, end);
+		}
+		
+		final JeeLinkMessage msg = new JeeLinkMessage(address, channel, cmd, param);
+		
+		if (cmd == CMD_VALUES) {
+			msg.power = (short)power;
+			msg.consumption = (short)consumption;
+		}
+		
+		return msg;
+	}
+	
+	private static ParseException createParseException(byte[] data, int offset, int length, int index) {
+		
+		final char[] chars = new char[length];
+		for (int i = 0; i < length; i++) {
+			chars[i] = (char) (data[offset + i] & 0xff);
+		}
+		return new ParseException(new String(chars), index - offset);
+	}
+	
 	/** Converts a byte array into an integer (big endian). **/
 	private static int getValue(int[] bytes) {
 		
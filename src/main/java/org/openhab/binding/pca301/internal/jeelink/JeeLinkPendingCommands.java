@@ -0,0 +1,284 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.pca301.internal.jeelink;
+
+import java.util.concurrent.Future;
+
+import org.openhab.binding.pca301.internal.util.LongHashMap;
+
+/**
+ * Table of commands which wait for acknowledgement by the PCA301 device.<br>
+ * A command is identified by address and command, which are packed to one primitive key,
+ * so an acknowledgement is matched in constant time. Only the latest command of a kind is pending,
+ * it supersedes older ones with other parameters. The table is not synchronized, except the lookup
+ * of pending addresses, which are published copy-on-write for the reader.
+ * @author ribbeck
+ * @since 1.9.0
+ */
+class JeeLinkPendingCommands {
+
+	/**
+	 * Pending command with its retry task. The retry timer runs from the time the command is queued
+	 * and is restarted when the writer has written the command.
+	 */
+	static class Entry {
+
+		private final JeeLinkMessage message;
+		private final Runnable task;
+		private Future<?> retryTask;
+		private final boolean retransmitted;
+		private final boolean poll;
+		private boolean sent = false;
+		private long sendTime;
+		private boolean firstSent = false;
+		private long firstSendTime;
+
+		Entry(JeeLinkMessage message, Runnable task, Future<?> retryTask, boolean retransmitted, boolean poll, Entry previous) {
+			this.message = message;
+			this.task = task;
+			this.retryTask = retryTask;
+			this.retransmitted = retransmitted;
+			this.poll = poll;
+			if ((previous != null) && previous.message.equals(message) && previous.firstSent) {
+				firstSent = true;
+				firstSendTime = previous.firstSendTime;
+			}
+		}
+
+		/** Returns the task which retries or gives up the command. */
+		Runnable getTask() {
+			return task;
+		}
+
+		/** Replaces the scheduled retry and cancels the current one. */
+		void reschedule(Future<?> retryTask) {
+			this.retryTask.cancel(false);
+			this.retryTask = retryTask;
+		}
+
+		/**
+		 * Marks the command as written and restarts its retry timer.
+		 * @param retryTask retry which is scheduled from now on
+		 */
+		void sent(Future<?> retryTask) {
+			reschedule(retryTask);
+			sent = true;
+			sendTime = System.nanoTime();
+			if (!firstSent) {
+				firstSent = true;
+				firstSendTime = sendTime;
+			}
+		}
+
+		/** Returns true if the command was written to the JeeLink device. */
+		boolean isSent() {
+			return sent;
+		}
+
+		/** Returns true if the command or a former transmission of it was written, so its latency is known. */
+		boolean isFirstSent() {
+			return firstSent;
+		}
+
+		/** Returns the pending command. */
+		JeeLinkMessage getMessage() {
+			return message;
+		}
+
+		/** Returns the scheduled retry of the command. */
+		Future<?> getRetryTask() {
+			return retryTask;
+		}
+
+		/** Returns true if the command was sent before, so its round-trip time is ambiguous. */
+		boolean isRetransmitted() {
+			return retransmitted;
+		}
+
+		/**
+		 * Returns true if the command is a value request or reset. It is answered by a values message
+		 * like a spontaneous report, so its round-trip time is only measured and doesn't adapt the retry policy.
+		 */
+		boolean isPoll() {
+			return poll;
+		}
+
+		/** Returns the time in nanoseconds when the command was written, see {@link System#nanoTime()}. */
+		long getSendTime() {
+			return sendTime;
+		}
+
+		/** Returns the time in nanoseconds when the command was written the first time before any retry. */
+		long getFirstSendTime() {
+			return firstSendTime;
+		}
+	}
+
+
+	private final int capacity;
+	private final LongHashMap<Entry> entries;
+	/** Addresses of all pending commands, replaced on every change, so they are looked up without lock. */
+	private volatile LongHashMap<Boolean> addresses = new LongHashMap<Boolean>();
+
+
+	/**
+	 * Constructor
+	 * @param capacity maximal number of pending commands
+	 */
+	JeeLinkPendingCommands(int capacity) {
+		this.capacity = capacity;
+		this.entries = new LongHashMap<Entry>(capacity);
+	}
+
+	/**
+	 * Returns the key of a command.
+	 * @param address PCA301 device address
+	 * @param cmd command
+	 * @return packed key
+	 */
+	static long key(int address, int cmd) {
+		return ((long) (address & 0xffffff) << 8) | (cmd & 0xff);
+	}
+
+	/** Returns the key of the passed message. */
+	static long key(JeeLinkMessage msg) {
+		return key(msg.getAddress(), msg.getCommand());
+	}
+
+	/**
+	 * Returns whether a command to the passed address waits for acknowledgement or not.
+	 * This lookup needs no synchronization.
+	 * @param address PCA301 device address
+	 */
+	boolean containsAddress(int address) {
+		return addresses.containsKey(address);
+	}
+
+	/**
+	 * Adds a pending command. The retry task of an older entry with same address and command is cancelled.
+	 * @param msg command message
+	 * @param task task which retries or gives up the command
+	 * @param retryTask scheduled retry of the command
+	 * @param retransmitted true when the command is a retry
+	 * @param poll true when the command is a value request or reset, see {@link Entry#isPoll()}
+	 * @return true when the command was added, false when the table is full
+	 */
+	boolean put(JeeLinkMessage msg, Runnable task, Future<?> retryTask, boolean retransmitted, boolean poll) {
+
+		final long key = key(msg);
+		if ((entries.size() >= capacity) && !entries.containsKey(key)) {
+			return false;
+		}
+
+		final Entry old = entries.get(key);
+		entries.put(key, new Entry(msg, task, retryTask, retransmitted, poll, old));
+		if (old != null) {
+			old.retryTask.cancel(false);
+		}
+
+		if (!addresses.containsKey(msg.getAddress())) {
+			final LongHashMap<Boolean> copy = new LongHashMap<Boolean>(addresses);
+			copy.put(msg.getAddress(), Boolean.TRUE);
+			addresses = copy;
+		}
+		return true;
+	}
+
+	/**
+	 * Removes the pending command which is acknowledged by the passed message and cancels its retry.
+	 * @param msg received message
+	 * @return removed entry or null when no command waits for this message
+	 */
+	Entry acknowledge(JeeLinkMessage msg) {
+
+		final long key = key(msg);
+		final Entry entry = entries.get(key);
+		if (entry == null) {
+			return null;
+		}
+
+		// a switching command is acknowledged with the new state, a value request with the values
+		if ((msg.getCommand() == JeeLinkMessage.CMD_STATE) && (entry.message.getParameter() != msg.getParameter())) {
+			return null;
+		}
+		return remove(key);
+	}
+
+	/**
+	 * Returns whether the passed command is still pending or not.
+	 * @param msg command message
+	 * @return false when it is acknowledged, given up or superseded by a newer command
+	 */
+	boolean isPending(JeeLinkMessage msg) {
+		return get(msg) != null;
+	}
+
+	/**
+	 * Returns the entry of the passed command.
+	 * @param msg command message
+	 * @return entry or null when it is acknowledged, given up or superseded by a newer command
+	 */
+	Entry get(JeeLinkMessage msg) {
+
+		final Entry entry = entries.get(key(msg));
+		return ((entry != null) && entry.message.equals(msg)) ? entry : null;
+	}
+
+	/**
+	 * Returns the entry with the passed key.
+	 * @param key key of the command
+	 * @return entry or null
+	 */
+	Entry get(long key) {
+		return entries.get(key);
+	}
+
+	/**
+	 * Removes the pending command with the passed key and cancels its retry.
+	 * @param key key of the command
+	 * @return removed entry or null
+	 */
+	Entry remove(long key) {
+
+		final Entry entry = entries.remove(key);
+		if (entry != null) {
+			entry.retryTask.cancel(false);
+
+			// the address is released when no other command to it is pending
+			final int address = entry.message.getAddress();
+			if (!entries.containsKey(key(address, JeeLinkMessage.CMD_STATE))
+					&& !entries.containsKey(key(address, JeeLinkMessage.CMD_VALUES))) {
+				final LongHashMap<Boolean> copy = new LongHashMap<Boolean>(addresses);
+				copy.remove(address);
+				addresses = copy;
+			}
+		}
+		return entry;
+	}
+
+	/** Removes all pending commands and cancels their retries. */
+	void clear() {
+
+		for (Entry entry : entries.values()) {
+			entry.retryTask.cancel(false);
+		}
+		entries.clear();
+		addresses = new LongHashMap<Boolean>();
+	}
+
+	/** Returns the number of pending commands. */
+	int size() {
+		return entries.size();
+	}
+
+	/** Returns true if no command is pending. */
+	boolean isEmpty() {
+		return entries.isEmpty();
+	}
+}
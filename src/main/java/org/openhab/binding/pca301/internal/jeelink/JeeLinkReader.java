@@ -0,0 +1,120 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.pca301.internal.jeelink;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Task which reads the input stream of a JeeLink device and splits it into lines.<br>
+ * Every read drains the stream into a reusable buffer, all complete lines in the buffer
+ * are passed to {@link JeeLinkDevice#processLine(JeeLinkLine)} before the next read.
+ * @author ribbeck
+ * @since 1.9.0
+ */
+class JeeLinkReader implements Runnable {
+
+	private final static Logger logger = LoggerFactory.getLogger(JeeLinkReader.class);
+
+	/** Maximal length of a line including line break. */
+	private final static int BUFFER_SIZE = 512;
+
+	private final JeeLinkDevice device;
+	private final InputStream input;
+
+	private final byte[] buffer = new byte[BUFFER_SIZE];
+	private final JeeLinkLine line = new JeeLinkLine();
+
+	private volatile boolean running = true;
+
+
+	/**
+	 * Constructor
+	 * @param device JeeLink device which processes the lines
+	 * @param input input stream of the JeeLink device
+	 */
+	public JeeLinkReader(JeeLinkDevice device, InputStream input) {
+		this.device = device;
+		this.input = input;
+	}
+
+	/** Stops the reader after the current read. */
+	public void stop() {
+		running = false;
+	}
+
+	@Override
+	public void run() {
+
+		// number of bytes of an incomplete line at the beginning of the buffer
+		int count = 0;
+		// true while the rest of an over-long line is skipped up to the next line break
+		boolean discard = false;
+
+		try {
+			while (running) {
+
+				final int read = input.read(buffer, count, buffer.length - count);
+				if (read < 0) {
+					if (running) {
+						device.onEndOfStream();
+					}
+					return;
+				}
+
+				final int end = count + read;
+				int start = 0;
+
+				// process every complete line
+				for (int i = count; i < end; i++) {
+					if (buffer[i] == '\n') {
+
+						if (discard) {
+							discard = false;
+							start = i + 1;
+							continue;
+						}
+
+						int length = i - start;
+						if ((length > 0) && (buffer[i - 1] == '\r')) {
+							length--;
+						}
+						if (length > 0) {
+							line.set(buffer, start, length);
+							device.processLine(line);
+						}
+						start = i + 1;
+					}
+				}
+
+				// move incomplete line to the beginning of the buffer
+				count = end - start;
+				if (discard) {
+					count = 0;
+
+				} else if (count == buffer.length) {
+					logger.warn("Discard line which exceeds " + BUFFER_SIZE + " bytes");
+					count = 0;
+					discard = true;
+
+				} else if ((count > 0) && (start > 0)) {
+					System.arraycopy(buffer, start, buffer, 0, count);
+				}
+			}
+
+		} catch (IOException e) {
+			if (running) {
+				device.onReadError(e);
+			}
+		}
+	}
+}
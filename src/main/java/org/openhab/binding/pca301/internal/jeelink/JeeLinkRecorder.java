@@ -0,0 +1,151 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.pca301.internal.jeelink;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Records the raw lines received from and sent to a JeeLink device in a capture file.<br>
+ * Every line of the file has the format {@code <time> <direction> <text>}, where time is a monotonic timestamp
+ * in microseconds since the start of the recording, direction is {@link #RECEIVED} or {@link #SENT}.
+ * The file is appended, so a new recording starts with a {@link #START} line.
+ * @author ribbeck
+ * @since 1.9.0
+ * @see JeeLinkTransportReplay
+ */
+public class JeeLinkRecorder {
+
+	private final static Logger logger = LoggerFactory.getLogger(JeeLinkRecorder.class);
+
+	/** Direction of a line received from JeeLink device. */
+	public final static char RECEIVED = '<';
+	/** Direction of a line sent to JeeLink device. */
+	public final static char SENT = '>';
+	/** Direction of the line which starts a recording. */
+	public final static char START = '#';
+
+	/** Maximal time between two flushes of the file. */
+	private final static long FLUSH_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+
+	private final String fileName;
+
+	private Writer writer = null;
+	private long startTime = 0;
+	private long flushTime = 0;
+
+
+	/**
+	 * Constructor
+	 * @param fileName name of the capture file
+	 */
+	public JeeLinkRecorder(String fileName) {
+		this.fileName = fileName;
+	}
+
+	/** Returns the name of the capture file. */
+	public String getFileName() {
+		return fileName;
+	}
+
+	/**
+	 * Opens the capture file and starts a new recording.
+	 * @param name name of the recorded connection
+	 * @throws IOException The file can't be opened.
+	 */
+	public synchronized void open(String name) throws IOException {
+
+		close();
+
+		writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(fileName, true), "US-ASCII"));
+		startTime = System.nanoTime();
+		flushTime = startTime;
+
+		write(START, name + " " + System.currentTimeMillis());
+		writer.flush();
+	}
+
+	/**
+	 * Records a received line.
+	 * @param line received line
+	 */
+	public void recordReceived(CharSequence line) {
+		record(RECEIVED, line);
+	}
+
+	/**
+	 * Records a sent line.
+	 * @param line sent line
+	 */
+	public void recordSent(CharSequence line) {
+		record(SENT, line);
+	}
+
+	/**
+	 * Records a sent line.
+	 * @param line ASCII bytes of sent line
+	 */
+	public void recordSent(byte[] line) {
+		record(SENT, new JeeLinkLine(line));
+	}
+
+	private synchronized void record(char direction, CharSequence line) {
+
+		if (writer == null) {
+			return;
+		}
+
+		try {
+			write(direction, line);
+
+			final long now = System.nanoTime();
+			if ((now - flushTime) >= FLUSH_INTERVAL) {
+				writer.flush();
+				flushTime = now;
+			}
+
+		} catch (IOException e) {
+			logger.error("Failed to write capture file " + fileName + ", stop recording", e);
+			close();
+		}
+	}
+
+	private void write(char direction, CharSequence line) throws IOException {
+
+		final long time = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startTime);
+		writer.write(Long.toString(time));
+		writer.write(' ');
+		writer.write(direction);
+		writer.write(' ');
+		writer.append(line);
+		writer.write('\n');
+	}
+
+	/** Closes the capture file. */
+	public synchronized void close() {
+
+		if (writer == null) {
+			return;
+		}
+
+		try {
+			writer.close();
+		} catch (IOException e) {
+			logger.error("Failed to close capture file " + fileName, e);
+		}
+		writer = null;
+	}
+}
@@ -0,0 +1,109 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.pca301.internal.jeelink;
+
+import java.util.Random;
+
+/**
+ * Retry timeout and retry budget of one PCA301 device.<br>
+ * The timeout is computed like the retransmission timeout of TCP (RFC 6298): a smoothed round-trip time
+ * plus four times its variance. Round-trip times of retried commands are not sampled (Karn's algorithm)
+ * and every expired timeout doubles it until the next valid sample.<br>
+ * A retry costs one token of the budget, every acknowledged command earns a tenth of a token back.
+ * Retries are only allowed while more than half of the budget is left, so a device with a bad link
+ * doesn't flood the air. The class is not synchronized.
+ * @author ribbeck
+ * @since 1.9.0
+ */
+class JeeLinkRetryPolicy {
+
+	/** Timeout until the first round-trip time is measured. */
+	final static long INITIAL_TIMEOUT = 3000; // in milliseconds
+	/** Lower bound of the timeout. */
+	final static long MIN_TIMEOUT = 250; // in milliseconds
+	/** Upper bound of the timeout. */
+	final static long MAX_TIMEOUT = 30000; // in milliseconds
+	/** Granularity of the timer. */
+	private final static long CLOCK_GRANULARITY = 10; // in milliseconds
+
+	/** Maximal number of retry tokens. */
+	private final static double MAX_TOKENS = 10;
+	/** Tokens which are earned with every acknowledged command. */
+	private final static double SUCCESS_TOKENS = 0.1;
+
+	private double smoothedRtt = -1;
+	private double rttVariance = 0;
+	private long timeout = INITIAL_TIMEOUT;
+
+	private double tokens = MAX_TOKENS;
+
+
+	/**
+	 * Adds a measured round-trip time.
+	 * @param rtt time in milliseconds between sending of a command and its acknowledgement
+	 */
+	void addSample(long rtt) {
+
+		if (smoothedRtt < 0) {
+			smoothedRtt = rtt;
+			rttVariance = rtt / 2.0;
+		} else {
+			rttVariance = 0.75 * rttVariance + 0.25 * Math.abs(smoothedRtt - rtt);
+			smoothedRtt = 0.875 * smoothedRtt + 0.125 * rtt;
+		}
+		timeout = clamp(Math.round(smoothedRtt + Math.max(CLOCK_GRANULARITY, 4 * rttVariance)));
+	}
+
+	/** Doubles the timeout after it has expired. */
+	void backoff() {
+		timeout = clamp(timeout * 2);
+	}
+
+	/**
+	 * Returns the timeout until the next retry with a random jitter of up to a quarter,
+	 * so retries of commands which were sent together are spread.
+	 * @param random random generator
+	 * @return timeout in milliseconds
+	 */
+	long nextTimeout(Random random) {
+		return timeout + (long) (random.nextDouble() * timeout / 4);
+	}
+
+	/**
+	 * Takes a token for a retry.
+	 * @return true when the retry is allowed, false when the budget is exhausted
+	 */
+	boolean acquireRetry() {
+
+		if (tokens <= MAX_TOKENS / 2) {
+			return false;
+		}
+		tokens -= 1;
+		return true;
+	}
+
+	/** Earns tokens for an acknowledged command. */
+	void onSuccess() {
+		tokens = Math.min(MAX_TOKENS, tokens + SUCCESS_TOKENS);
+	}
+
+	/** Returns the smoothed round-trip time in milliseconds or -1 if nothing is measured. */
+	double getSmoothedRtt() {
+		return smoothedRtt;
+	}
+
+	/** Returns the current timeout without jitter in milliseconds. */
+	long getTimeout() {
+		return timeout;
+	}
+
+	private static long clamp(long value) {
+		return Math.max(MIN_TIMEOUT, Math.min(MAX_TIMEOUT, value));
+	}
+}
@@ -0,0 +1,364 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.pca301.internal.jeelink;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.openhab.binding.pca301.internal.util.LongHashMap;
+
+/**
+ * Bounded queue of outgoing messages with priority classes.<br>
+ * Messages with higher priority are taken first, messages with same priority in order of insertion.
+ * When the queue is full a new message replaces the newest message with lower priority or is rejected.<br>
+ * Messages to a PCA301 device are coalesced: a message with the same address and command as a queued one
+ * replaces it, so only the latest state is sent. A refresh is dropped when values are requested already.
+ * @author ribbeck
+ * @since 1.9.0
+ */
+public class JeeLinkSendQueue {
+
+	/** Priority of an outgoing message, in descending order. */
+	public enum Priority {
+		/** Commands of the user like switching or configuration of the JeeLink device. */
+		COMMAND,
+		/** Retries of commands which are not acknowledged. */
+		RETRY,
+		/** Requests of current values like refresh and device list. */
+		POLL
+	}
+
+	/** Entry of the queue. */
+	public static class Entry {
+
+		private final String text;
+		private JeeLinkMessage message;
+		private final Priority priority;
+		private final long enqueueTime;
+		/** Set when the entry is replaced by a newer one with higher priority, it is skipped then. */
+		private boolean superseded = false;
+
+		private Entry(String text, JeeLinkMessage message, Priority priority) {
+			this.text = text;
+			this.message = message;
+			this.priority = priority;
+			this.enqueueTime = System.nanoTime();
+		}
+
+		/** Returns the text which must be sent to serial port. */
+		public String getText() {
+			return (text != null) ? text : message.toSerialString();
+		}
+
+		/** Returns the message to a PCA301 device or null for a command to the JeeLink device. */
+		public JeeLinkMessage getMessage() {
+			return message;
+		}
+
+		/** Returns the priority of the entry. */
+		public Priority getPriority() {
+			return priority;
+		}
+	}
+
+
+	private final int capacity;
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition notEmpty = lock.newCondition();
+
+	/** One queue for every priority. Access must be guarded by {@link #lock}. */
+	private final ArrayDeque<Entry>[] queues;
+	private int size = 0;
+	/** Queued messages by address and command. Access must be guarded by {@link #lock}. */
+	private final LongHashMap<Entry> messages = new LongHashMap<Entry>();
+	// taken message which is written until done() is called, access must be guarded by lock
+	private JeeLinkMessage writing = null;
+
+	// statistics, access must be guarded by lock
+	private long takeCount = 0;
+	private long totalWaitTime = 0;
+	private long maxWaitTime = 0;
+	private long rejectedCount = 0;
+	private long coalescedCount = 0;
+
+
+	/**
+	 * Constructor
+	 * @param capacity maximal number of queued messages
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public JeeLinkSendQueue(int capacity) {
+		this.capacity = capacity;
+
+		final Priority[] priorities = Priority.values();
+		queues = new ArrayDeque[priorities.length];
+		for (int i = 0; i < priorities.length; i++) {
+			queues[i] = new ArrayDeque<Entry>();
+		}
+	}
+
+	/**
+	 * Inserts a text command for the JeeLink device.
+	 * @param text command text
+	 * @param priority priority of the command
+	 * @return true when the command was queued, false when the queue is full
+	 */
+	public boolean offer(String text, Priority priority) {
+		return offer(new Entry(text, null, priority));
+	}
+
+	/**
+	 * Inserts a message to a PCA301 device.
+	 * @param message message to PCA301 device
+	 * @param priority priority of the message
+	 * @return true when the message was queued, false when the queue is full
+	 */
+	public boolean offer(JeeLinkMessage message, Priority priority) {
+		return offer(new Entry(null, message, priority));
+	}
+
+	private boolean offer(Entry entry) {
+
+		lock.lock();
+		try {
+			if ((entry.message != null) && coalesce(entry)) {
+				return true;
+			}
+
+			if (size >= capacity) {
+
+				// replace newest entry with lowest priority which is lower than the new one
+				boolean replaced = false;
+				for (int i = queues.length - 1; (i > entry.priority.ordinal()) && !replaced; i--) {
+					Entry last;
+					while ((last = queues[i].pollLast()) != null) {
+						if (!last.superseded) {
+							unregister(last);
+							size--;
+							replaced = true;
+							break;
+						}
+					}
+				}
+
+				rejectedCount++;
+				if (!replaced) {
+					return false;
+				}
+			}
+
+			queues[entry.priority.ordinal()].addLast(entry);
+			size++;
+			if (entry.message != null) {
+				messages.put(key(entry.message), entry);
+			}
+			notEmpty.signal();
+			return true;
+
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Coalesces the passed entry with a queued message of same address and command, lock must be held.
+	 * @return true when the entry is merged into the queued one or dropped,
+	 *   false when it must be inserted
+	 */
+	private boolean coalesce(Entry entry) {
+
+		final Entry queued = messages.get(key(entry.message));
+		if (queued == null) {
+			return false;
+		}
+
+		coalescedCount++;
+
+		// the queued request responds the values anyway
+		if (isRefresh(entry.message)) {
+			return true;
+		}
+
+		// a queued command is newer than a retry, so it is the latest desired state
+		if ((entry.priority == Priority.RETRY) && (queued.priority == Priority.COMMAND)) {
+			return true;
+		}
+
+		// latest wins, the queued entry keeps its position when its priority isn't lower
+		if (queued.priority.ordinal() <= entry.priority.ordinal()) {
+			queued.message = entry.message;
+			return true;
+		}
+
+		queued.superseded = true;
+		messages.remove(key(queued.message));
+		size--;
+		return false;
+	}
+
+	/**
+	 * Retrieves and removes the entry with highest priority, waiting if necessary until an entry becomes available.
+	 * @return entry with highest priority
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public Entry take() throws InterruptedException {
+
+		lock.lockInterruptibly();
+		try {
+			while (size == 0) {
+				notEmpty.await();
+			}
+
+			for (ArrayDeque<Entry> queue : queues) {
+				Entry entry;
+				while ((entry = queue.pollFirst()) != null) {
+					if (entry.superseded) {
+						continue;
+					}
+					unregister(entry);
+					size--;
+					writing = entry.message;
+
+					final long waitTime = System.nanoTime() - entry.enqueueTime;
+					takeCount++;
+					totalWaitTime += waitTime;
+					if (waitTime > maxWaitTime) {
+						maxWaitTime = waitTime;
+					}
+					return entry;
+				}
+			}
+			throw new IllegalStateException("Inconsistent queue size");
+
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/** Will be called by the writer when the taken entry is written or failed. */
+	public void done() {
+
+		lock.lock();
+		try {
+			writing = null;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns whether a message with same address and command waits to be sent or is being written.
+	 * @param message message to PCA301 device
+	 */
+	public boolean contains(JeeLinkMessage message) {
+
+		lock.lock();
+		try {
+			final long key = key(message);
+			return messages.containsKey(key) || ((writing != null) && (key(writing) == key));
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/** Removes all entries from the queue. */
+	public void clear() {
+
+		lock.lock();
+		try {
+			for (ArrayDeque<Entry> queue : queues) {
+				queue.clear();
+			}
+			messages.clear();
+			size = 0;
+			writing = null;
+
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/** Returns the number of queued entries. */
+	public int size() {
+
+		lock.lock();
+		try {
+			return size;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/** Returns the number of messages which were merged into or dropped for a queued message. */
+	public long getCoalescedCount() {
+
+		lock.lock();
+		try {
+			return coalescedCount;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/** Returns the average time in milliseconds an entry waited in the queue. */
+	public double getAverageWaitTime() {
+
+		lock.lock();
+		try {
+			if (takeCount == 0) {
+				return 0;
+			}
+			return (double) totalWaitTime / takeCount / TimeUnit.MILLISECONDS.toNanos(1);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/** Returns the maximal time in milliseconds an entry waited in the queue. */
+	public long getMaxWaitTime() {
+
+		lock.lock();
+		try {
+			return TimeUnit.NANOSECONDS.toMillis(maxWaitTime);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/** Returns the number of entries which were rejected or replaced because the queue was full. */
+	public long getRejectedCount() {
+
+		lock.lock();
+		try {
+			return rejectedCount;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/** Removes a taken or evicted entry from the message index, lock must be held. */
+	private void unregister(Entry entry) {
+
+		if (entry.message != null) {
+			messages.remove(key(entry.message));
+		}
+	}
+
+	/** Returns the coalescing key of a message, packed of address and command. */
+	private static long key(JeeLinkMessage msg) {
+		return ((long) (msg.getAddress() & 0xffffff) << 8) | (msg.getCommand() & 0xff);
+	}
+
+	private static boolean isRefresh(JeeLinkMessage msg) {
+		return (msg.getCommand() == JeeLinkMessage.CMD_VALUES) && (msg.getParameter() == JeeLinkMessage.PARAM_NONE);
+	}
+}
@@ -0,0 +1,160 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.pca301.internal.jeelink;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.openhab.binding.pca301.internal.util.LongHashMap;
+
+/**
+ * Registry of JeeLink listeners with the PCA301 addresses they are interested in.<br>
+ * A listener subscribes either a set of addresses or all addresses. On every change a table is built
+ * which maps every subscribed address to its listeners, so a received frame is dispatched with one lookup
+ * and without locking.
+ * @author ribbeck
+ * @since 1.9.0
+ */
+public class JeeLinkSubscriptions {
+
+	private final static JeeLinkListener[] NONE = new JeeLinkListener[0];
+
+	/** Immutable dispatch table. */
+	private static class Table {
+
+		/** Listeners of all addresses, which receive addresses without an own entry. */
+		final JeeLinkListener[] all;
+		/** Listeners of every subscribed address including the listeners of all addresses. */
+		final LongHashMap<JeeLinkListener[]> byAddress;
+		/** Union of subscribed addresses in ascending order, null when a listener subscribed all. */
+		final int[] addresses;
+
+		Table(JeeLinkListener[] all, LongHashMap<JeeLinkListener[]> byAddress, int[] addresses) {
+			this.all = all;
+			this.byAddress = byAddress;
+			this.addresses = addresses;
+		}
+	}
+
+
+	/** Subscribed addresses of every listener in order of subscription, null for all addresses. Access must be synchronized. */
+	private final Map<JeeLinkListener, int[]> subscriptions = new LinkedHashMap<JeeLinkListener, int[]>();
+
+	private volatile Table table = new Table(NONE, new LongHashMap<JeeLinkListener[]>(), new int[0]);
+
+
+	/**
+	 * Subscribes a listener or replaces its subscription.
+	 * @param listener the JeeLink listener
+	 * @param addresses PCA301 device addresses which the listener receives, null for all addresses
+	 */
+	public void subscribe(JeeLinkListener listener, int[] addresses) {
+
+		synchronized (subscriptions) {
+			subscriptions.put(listener, (addresses != null) ? addresses.clone() : null);
+			rebuild();
+		}
+	}
+
+	/**
+	 * Removes the subscription of a listener.
+	 * @param listener the JeeLink listener
+	 */
+	public void unsubscribe(JeeLinkListener listener) {
+
+		synchronized (subscriptions) {
+			if (subscriptions.containsKey(listener)) {
+				subscriptions.remove(listener);
+				rebuild();
+			}
+		}
+	}
+
+	/**
+	 * Returns the listeners of the passed address.
+	 * @param address PCA301 device address
+	 * @return listeners in order of subscription, which must not be modified, empty if none is interested
+	 */
+	public JeeLinkListener[] getListeners(int address) {
+
+		final Table current = table;
+		final JeeLinkListener[] listeners = current.byAddress.get(address);
+		return (listeners != null) ? listeners : current.all;
+	}
+
+	/**
+	 * Returns whether a listener is interested in the passed address or not.
+	 * @param address PCA301 device address
+	 */
+	public boolean isSubscribed(int address) {
+		return getListeners(address).length > 0;
+	}
+
+	/**
+	 * Returns all subscribed addresses.
+	 * @return addresses in ascending order, which must not be modified, or null when a listener receives all addresses
+	 */
+	public int[] getAddresses() {
+		return table.addresses;
+	}
+
+	/** Builds a new table of the current subscriptions, access must be synchronized over {@link #subscriptions}. */
+	private void rebuild() {
+
+		final List<JeeLinkListener> all = new ArrayList<JeeLinkListener>();
+		final LongHashMap<List<JeeLinkListener>> lists = new LongHashMap<List<JeeLinkListener>>();
+
+		for (Entry<JeeLinkListener, int[]> entry : subscriptions.entrySet()) {
+			final int[] addresses = entry.getValue();
+			if (addresses == null) {
+				all.add(entry.getKey());
+				continue;
+			}
+			for (int address : addresses) {
+				List<JeeLinkListener> list = lists.get(address);
+				if (list == null) {
+					list = new ArrayList<JeeLinkListener>(2);
+					lists.put(address, list);
+				}
+				if (!list.contains(entry.getKey())) {
+					list.add(entry.getKey());
+				}
+			}
+		}
+
+		// every address entry contains the listeners of all addresses as well, in order of subscription
+		final long[] keys = lists.keys();
+		final LongHashMap<JeeLinkListener[]> byAddress = new LongHashMap<JeeLinkListener[]>(keys.length);
+		for (long key : keys) {
+			final List<JeeLinkListener> list = lists.get(key);
+			final List<JeeLinkListener> listeners = new ArrayList<JeeLinkListener>(list.size() + all.size());
+			for (JeeLinkListener listener : subscriptions.keySet()) {
+				if ((subscriptions.get(listener) == null) || list.contains(listener)) {
+					listeners.add(listener);
+				}
+			}
+			byAddress.put(key, listeners.toArray(NONE));
+		}
+
+		int[] addresses = null;
+		if (all.isEmpty()) {
+			addresses = new int[keys.length];
+			for (int i = 0; i < keys.length; i++) {
+				addresses[i] = (int) keys[i];
+			}
+			Arrays.sort(addresses);
+		}
+
+		table = new Table(all.toArray(NONE), byAddress, addresses);
+	}
+}
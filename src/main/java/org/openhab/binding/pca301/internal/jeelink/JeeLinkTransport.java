@@ -0,0 +1,50 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.pca301.internal.jeelink;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Interface for classes which connect a JeeLink device.<br>
+ * A transport can be opened again after it was closed.
+ * @author ribbeck
+ * @since 1.9.0
+ */
+public interface JeeLinkTransport {
+
+	/**
+	 * Returns a name of the connection for logging, e.g. the port.
+	 * @return name of the connection
+	 */
+	String getName();
+
+	/**
+	 * Opens the connection.
+	 * @throws IOException The connection can't be opened.
+	 */
+	void open() throws IOException;
+
+	/**
+	 * Returns the stream to read from the JeeLink device.<br>
+	 * A blocking read must return when the transport is closed.
+	 * @return input stream of open connection
+	 */
+	InputStream getInputStream();
+
+	/**
+	 * Returns the stream to write to the JeeLink device.
+	 * @return output stream of open connection
+	 */
+	OutputStream getOutputStream();
+
+	/** Closes the connection and its streams. */
+	void close();
+}
@@ -0,0 +1,244 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.pca301.internal.jeelink;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+
+/**
+ * A transport which connects a JeeLink device with in-memory pipes.<br>
+ * The remote streams are the other ends of the pipes: Text written to the remote output stream is read by the device,
+ * text written by the device can be read from the remote input stream. It can be used to connect an emulator
+ * or to test the device without hardware.
+ * @author ribbeck
+ * @since 1.9.0
+ */
+public class JeeLinkTransportLoopback implements JeeLinkTransport {
+
+	/** Prefix of a port name for loopback connections, e.g. loop://test */
+	public final static String SCHEME = "loop://";
+
+	private final static int PIPE_SIZE = 64 * 1024;
+
+	private final String name;
+
+	/** Pipe from remote side to device. */
+	private volatile Pipe receivePipe = null;
+	/** Pipe from device to remote side. */
+	private volatile Pipe sendPipe = null;
+
+
+	/**
+	 * Constructor
+	 * @param name name of the connection
+	 */
+	public JeeLinkTransportLoopback(String name) {
+		this.name = name;
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public synchronized void open() throws IOException {
+
+		receivePipe = new Pipe(PIPE_SIZE);
+		sendPipe = new Pipe(PIPE_SIZE);
+		notifyAll();
+	}
+
+	@Override
+	public InputStream getInputStream() {
+		return receivePipe.input;
+	}
+
+	@Override
+	public OutputStream getOutputStream() {
+		return sendPipe.output;
+	}
+
+	/**
+	 * Returns the stream which reads the text written by the device.
+	 * @return input stream of the remote side or null, when the transport was never opened
+	 */
+	public InputStream getRemoteInputStream() {
+		final Pipe pipe = sendPipe;
+		return (pipe != null) ? pipe.input : null;
+	}
+
+	/**
+	 * Returns the stream which writes text to the device.
+	 * @return output stream of the remote side or null, when the transport was never opened
+	 */
+	public OutputStream getRemoteOutputStream() {
+		final Pipe pipe = receivePipe;
+		return (pipe != null) ? pipe.output : null;
+	}
+
+	/**
+	 * Waits until the transport is opened.
+	 * @param timeout maximal time to wait in milliseconds
+	 * @return true when it is open, false otherwise
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public synchronized boolean waitForOpen(long timeout) throws InterruptedException {
+
+		final long end = System.currentTimeMillis() + timeout;
+		while ((receivePipe == null) || receivePipe.closed) {
+			final long remaining = end - System.currentTimeMillis();
+			if (remaining <= 0) {
+				return false;
+			}
+			wait(remaining);
+		}
+		return true;
+	}
+
+	@Override
+	public synchronized void close() {
+
+		if (receivePipe != null) {
+			receivePipe.close();
+		}
+		if (sendPipe != null) {
+			sendPipe.close();
+		}
+	}
+
+
+	/**
+	 * Bounded byte pipe. Reads block while it is empty, writes block while it is full.
+	 * After closing, reads return the remaining bytes and then the end of stream, writes fail.
+	 */
+	private static class Pipe {
+
+		private final byte[] buffer;
+		private int readIndex = 0;
+		private int count = 0;
+		private boolean closed = false;
+
+		final InputStream input = new InputStream() {
+
+			@Override
+			public int read() throws IOException {
+				final byte[] b = new byte[1];
+				return (read(b, 0, 1) < 0) ? -1 : (b[0] & 0xff);
+			}
+
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				return Pipe.this.read(b, off, len);
+			}
+
+			@Override
+			public int available() throws IOException {
+				synchronized (Pipe.this) {
+					return count;
+				}
+			}
+
+			@Override
+			public void close() {
+				Pipe.this.close();
+			}
+		};
+
+		final OutputStream output = new OutputStream() {
+
+			@Override
+			public void write(int b) throws IOException {
+				write(new byte[] { (byte) b }, 0, 1);
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				Pipe.this.write(b, off, len);
+			}
+
+			@Override
+			public void close() {
+				Pipe.this.close();
+			}
+		};
+
+		Pipe(int size) {
+			buffer = new byte[size];
+		}
+
+		synchronized int read(byte[] b, int off, int len) throws IOException {
+
+			if (len == 0) {
+				return 0;
+			}
+
+			try {
+				while ((count == 0) && !closed) {
+					wait();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException();
+			}
+
+			if (count == 0) {
+				return -1;
+			}
+
+			// copy up to two contiguous regions of the ring buffer
+			int read = 0;
+			while ((read < len) && (count > 0)) {
+				final int chunk = Math.min(Math.min(len - read, count), buffer.length - readIndex);
+				System.arraycopy(buffer, readIndex, b, off + read, chunk);
+				readIndex = (readIndex + chunk) % buffer.length;
+				count -= chunk;
+				read += chunk;
+			}
+
+			notifyAll();
+			return read;
+		}
+
+		synchronized void write(byte[] b, int off, int len) throws IOException {
+
+			int written = 0;
+			while (written < len) {
+
+				try {
+					while ((count == buffer.length) && !closed) {
+						wait();
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException();
+				}
+
+				if (closed) {
+					throw new IOException("Pipe closed");
+				}
+
+				final int writeIndex = (readIndex + count) % buffer.length;
+				final int chunk = Math.min(Math.min(len - written, buffer.length - count), buffer.length - writeIndex);
+				System.arraycopy(b, off + written, buffer, writeIndex, chunk);
+				count += chunk;
+				written += chunk;
+
+				notifyAll();
+			}
+		}
+
+		synchronized void close() {
+			closed = true;
+			notifyAll();
+		}
+	}
+}
@@ -0,0 +1,300 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.pca301.internal.jeelink;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A transport which replays the received lines of a capture file written by {@link JeeLinkRecorder}.<br>
+ * The lines are replayed either with their original timing or as fast as possible. Sent text is discarded.
+ * When all lines are replayed, reads block until the transport is closed.
+ * @author ribbeck
+ * @since 1.9.0
+ */
+public class JeeLinkTransportReplay implements JeeLinkTransport {
+
+	private final static Logger logger = LoggerFactory.getLogger(JeeLinkTransportReplay.class);
+
+	/** Prefix of a port name for replays, e.g. replay:///var/log/jeelink.cap */
+	public final static String SCHEME = "replay://";
+	/** Suffix of a port name for replays as fast as possible, e.g. replay:///var/log/jeelink.cap?fast */
+	public final static String OPTION_FAST = "?fast";
+
+	private final String fileName;
+	private final boolean fast;
+
+	private final Object lock = new Object();
+	/** Access must be synchronized over {@link #lock}. */
+	private BufferedReader reader = null;
+	private boolean closed = true;
+	private boolean finished = false;
+	/** True when the reader asked for more data after the last line, so it has processed all lines. */
+	private boolean drained = false;
+	private long replayedCount = 0;
+
+	private final InputStream input = new InputStream() {
+
+		@Override
+		public int read() throws IOException {
+			final byte[] b = new byte[1];
+			return (read(b, 0, 1) < 0) ? -1 : (b[0] & 0xff);
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			return JeeLinkTransportReplay.this.read(b, off, len);
+		}
+	};
+
+	private final OutputStream output = new OutputStream() {
+
+		@Override
+		public void write(int b) throws IOException {
+			// discard
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			// discard
+		}
+	};
+
+	/** Current line with line break and read position. */
+	private byte[] line = new byte[0];
+	private int lineIndex = 0;
+	/** Start of replay in nanoseconds. */
+	private long startTime = 0;
+	/** Time offset of first received line in the capture in microseconds. */
+	private long firstLineTime = -1;
+
+
+	/**
+	 * Constructor
+	 * @param fileName name of capture file
+	 * @param fast true to replay as fast as possible, false to replay with original timing
+	 */
+	public JeeLinkTransportReplay(String fileName, boolean fast) {
+		this.fileName = fileName;
+		this.fast = fast;
+	}
+
+	/**
+	 * Creates a transport for an address in format {@code replay://<file>[?fast]}.
+	 * @param address address of the capture file
+	 * @return the transport
+	 */
+	public static JeeLinkTransportReplay parse(String address) {
+
+		if (!address.startsWith(SCHEME)) {
+			throw new IllegalArgumentException("Address must start with " + SCHEME + ": " + address);
+		}
+
+		String fileName = address.substring(SCHEME.length());
+		final boolean fast = fileName.endsWith(OPTION_FAST);
+		if (fast) {
+			fileName = fileName.substring(0, fileName.length() - OPTION_FAST.length());
+		}
+		return new JeeLinkTransportReplay(fileName, fast);
+	}
+
+	@Override
+	public String getName() {
+		return SCHEME + fileName + (fast ? OPTION_FAST : "");
+	}
+
+	@Override
+	public void open() throws IOException {
+
+		synchronized (lock) {
+			reader = new BufferedReader(new InputStreamReader(new FileInputStream(fileName), "US-ASCII"));
+			closed = false;
+			finished = false;
+			drained = false;
+			replayedCount = 0;
+			line = new byte[0];
+			lineIndex = 0;
+			startTime = System.nanoTime();
+			firstLineTime = -1;
+		}
+	}
+
+	@Override
+	public InputStream getInputStream() {
+		return input;
+	}
+
+	@Override
+	public OutputStream getOutputStream() {
+		return output;
+	}
+
+	/**
+	 * Returns whether all lines of the capture file were replayed and read by the JeeLink device.<br>
+	 * The JeeLink device reads again only after it has processed the lines of the previous read, but the frames may
+	 * still wait for delivery. Use {@link JeeLinkDevice#isDispatchIdle()} to wait for the listeners as well.
+	 */
+	public boolean isFinished() {
+		synchronized (lock) {
+			return drained;
+		}
+	}
+
+	/** Returns the number of replayed lines. */
+	public long getReplayedCount() {
+		synchronized (lock) {
+			return replayedCount;
+		}
+	}
+
+	@Override
+	public void close() {
+
+		synchronized (lock) {
+			closed = true;
+			lock.notifyAll();
+
+			try {
+				if (reader != null) {
+					reader.close();
+				}
+			} catch (IOException e) {
+				logger.error("Failed to close capture file " + fileName, e);
+			}
+			reader = null;
+		}
+	}
+
+	private int read(byte[] b, int off, int len) throws IOException {
+
+		synchronized (lock) {
+
+			if (len == 0) {
+				return 0;
+			}
+
+			while ((lineIndex >= line.length) && !closed) {
+				if (!finished && nextLine()) {
+					break;
+				}
+				if (finished) {
+					drained = true;
+					waitForClose();
+				}
+			}
+
+			if (closed) {
+				return -1;
+			}
+
+			// return as many lines as possible to replay bursts in one read
+			int count = 0;
+			while (count < len) {
+				final int chunk = Math.min(len - count, line.length - lineIndex);
+				System.arraycopy(line, lineIndex, b, off + count, chunk);
+				lineIndex += chunk;
+				count += chunk;
+
+				if ((lineIndex >= line.length) && (!fast || !nextLine())) {
+					break;
+				}
+			}
+			return count;
+		}
+	}
+
+	/**
+	 * Reads the next received line of the capture and waits until its time has come. 
+	 * Access must be synchronized over {@link #lock}.
+	 * @return true when a line is available, false when the replay is finished or closed
+	 */
+	private boolean nextLine() throws IOException {
+
+		String text;
+		while ((text = reader.readLine()) != null) {
+
+			// format: <time> <direction> <text>
+			final int first = text.indexOf(' ');
+			if ((first < 0) || (text.length() < first + 3) || (text.charAt(first + 1) != JeeLinkRecorder.RECEIVED)) {
+				continue;
+			}
+
+			if (!fast) {
+				final long time;
+				try {
+					time = Long.parseLong(text.substring(0, first));
+				} catch (NumberFormatException e) {
+					logger.warn("Invalid line in capture file " + fileName + ": " + text);
+					continue;
+				}
+
+				if ((firstLineTime < 0) || (time < firstLineTime)) {
+					// first line or start of a new recording
+					firstLineTime = time;
+					startTime = System.nanoTime();
+				}
+				if (!waitUntil(startTime + TimeUnit.MICROSECONDS.toNanos(time - firstLineTime))) {
+					return false;
+				}
+			}
+
+			final String data = text.substring(first + 3);
+			line = new byte[data.length() + 1];
+			for (int i = 0; i < data.length(); i++) {
+				line[i] = (byte) data.charAt(i);
+			}
+			line[data.length()] = '\n';
+			lineIndex = 0;
+			replayedCount++;
+			return true;
+		}
+
+		logger.info("Replay of " + fileName + " finished after " + replayedCount + " lines");
+		finished = true;
+		lock.notifyAll();
+		return false;
+	}
+
+	/** Waits until the passed time. Access must be synchronized over {@link #lock}. */
+	private boolean waitUntil(long time) throws IOException {
+
+		try {
+			long delay;
+			while (!closed && ((delay = time - System.nanoTime()) > 0)) {
+				TimeUnit.NANOSECONDS.timedWait(lock, delay);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		}
+		return !closed;
+	}
+
+	/** Waits until the transport is closed. Access must be synchronized over {@link #lock}. */
+	private void waitForClose() throws IOException {
+
+		try {
+			while (!closed) {
+				lock.wait();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		}
+	}
+}
@@ -0,0 +1,133 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.pca301.internal.jeelink;
+
+import gnu.io.CommPort;
+import gnu.io.CommPortIdentifier;
+import gnu.io.NoSuchPortException;
+import gnu.io.PortInUseException;
+import gnu.io.SerialPort;
+import gnu.io.UnsupportedCommOperationException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A transport which connects a JeeLink device with a serial port (57600 baud, 8N1).
+ * @author ribbeck
+ * @since 1.9.0
+ */
+public class JeeLinkTransportSerial implements JeeLinkTransport {
+
+	private final static Logger logger = LoggerFactory.getLogger(JeeLinkTransportSerial.class);
+
+	private final static int BAUD_RATE = 57600;
+
+	/** Timeout to get the ownership of the port. */
+	private final static int OPEN_TIMEOUT = 2000; // in milliseconds
+
+	/** Timeout of a blocking read, so that the reader recognizes a closed port. */
+	private final static int RECEIVE_TIMEOUT = 500; // in milliseconds
+
+	private final String port;
+
+	private SerialPort serialPort = null;
+	private InputStream input = null;
+	private OutputStream output = null;
+
+
+	/**
+	 * Constructor
+	 * @param port Serial port which is used to connect the JeeLink device (e.g. "/dev/ttyUSB0")
+	 */
+	public JeeLinkTransportSerial(String port) {
+		this.port = port;
+	}
+
+	@Override
+	public String getName() {
+		return port;
+	}
+
+	@Override
+	public void open() throws IOException {
+
+		try {
+			CommPortIdentifier portIdentifier = CommPortIdentifier.getPortIdentifier(port);
+			CommPort commPort = portIdentifier.open(JeeLinkDevice.class.getName(), OPEN_TIMEOUT);
+
+			serialPort = (SerialPort) commPort;
+			serialPort.setSerialPortParams(BAUD_RATE, SerialPort.DATABITS_8,
+					SerialPort.STOPBITS_1, SerialPort.PARITY_NONE);
+
+			serialPort.enableReceiveTimeout(RECEIVE_TIMEOUT);
+
+			input = serialPort.getInputStream();
+			output = serialPort.getOutputStream();
+
+		} catch (NoSuchPortException e) {
+			close();
+			throw new IOException("Could not find port " + port, e);
+
+		} catch (PortInUseException e) {
+			close();
+			throw new IOException("Port " + port + " is already in use.", e);
+
+		} catch (UnsupportedCommOperationException e) {
+			close();
+			throw new IOException("Failed to setup port " + port, e);
+
+		} catch (IOException e) {
+			close();
+			throw e;
+		}
+	}
+
+	@Override
+	public InputStream getInputStream() {
+		return input;
+	}
+
+	@Override
+	public OutputStream getOutputStream() {
+		return output;
+	}
+
+	@Override
+	public void close() {
+
+		try {
+			if (input != null) {
+				input.close();
+			}
+		} catch (IOException e) {
+			logger.error("Failed to close serial input", e);
+		}
+
+		try {
+			if (output != null) {
+				output.close();
+			}
+		} catch (IOException e) {
+			logger.error("Failed to close serial output", e);
+		}
+
+		if (serialPort != null) {
+			serialPort.close();
+		}
+
+		input = null;
+		output = null;
+		serialPort = null;
+	}
+}
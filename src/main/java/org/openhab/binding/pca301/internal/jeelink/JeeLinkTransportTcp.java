@@ -0,0 +1,128 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.pca301.internal.jeelink;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A transport which connects a JeeLink device over TCP, e.g. a JeeLink device on another host which is shared with ser2net.<br>
+ * The remote side must be configured with 57600 baud, 8N1 and raw mode.
+ * @author ribbeck
+ * @since 1.9.0
+ */
+public class JeeLinkTransportTcp implements JeeLinkTransport {
+
+	private final static Logger logger = LoggerFactory.getLogger(JeeLinkTransportTcp.class);
+
+	/** Prefix of a port name for TCP connections, e.g. tcp://host:2000 */
+	public final static String SCHEME = "tcp://";
+
+	private final static int CONNECT_TIMEOUT = 5000; // in milliseconds
+
+	private final String host;
+	private final int port;
+
+	private Socket socket = null;
+	private InputStream input = null;
+	private OutputStream output = null;
+
+
+	/**
+	 * Constructor
+	 * @param host name or address of remote host
+	 * @param port TCP port of remote host
+	 */
+	public JeeLinkTransportTcp(String host, int port) {
+		this.host = host;
+		this.port = port;
+	}
+
+	/**
+	 * Creates a transport for an address in format {@code tcp://<host>:<port>}.
+	 * @param address address of the JeeLink device
+	 * @return the transport
+	 * @throws IllegalArgumentException The address has not the expected format.
+	 */
+	public static JeeLinkTransportTcp parse(String address) {
+
+		if (!address.startsWith(SCHEME)) {
+			throw new IllegalArgumentException("Address must start with " + SCHEME + ": " + address);
+		}
+
+		final String hostAndPort = address.substring(SCHEME.length());
+		final int index = hostAndPort.lastIndexOf(':');
+		if ((index <= 0) || (index == hostAndPort.length() - 1)) {
+			throw new IllegalArgumentException("Address must contain host and port: " + address);
+		}
+
+		try {
+			final int port = Integer.parseInt(hostAndPort.substring(index + 1));
+			return new JeeLinkTransportTcp(hostAndPort.substring(0, index), port);
+
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid port: " + address, e);
+		}
+	}
+
+	@Override
+	public String getName() {
+		return SCHEME + host + ":" + port;
+	}
+
+	@Override
+	public void open() throws IOException {
+
+		try {
+			socket = new Socket();
+			socket.setTcpNoDelay(true);
+			socket.setKeepAlive(true);
+			socket.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT);
+
+			input = socket.getInputStream();
+			output = socket.getOutputStream();
+
+		} catch (IOException e) {
+			close();
+			throw e;
+		}
+	}
+
+	@Override
+	public InputStream getInputStream() {
+		return input;
+	}
+
+	@Override
+	public OutputStream getOutputStream() {
+		return output;
+	}
+
+	@Override
+	public void close() {
+
+		try {
+			if (socket != null) {
+				socket.close();
+			}
+		} catch (IOException e) {
+			logger.error("Failed to close connection to " + getName(), e);
+		}
+
+		socket = null;
+		input = null;
+		output = null;
+	}
+}
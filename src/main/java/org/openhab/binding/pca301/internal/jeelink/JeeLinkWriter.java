@@ -0,0 +1,109 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.pca301.internal.jeelink;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.openhab.binding.pca301.internal.jeelink.JeeLinkSendQueue.Entry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Task which takes the queued messages of a JeeLink device and writes them to the serial port.<br>
+ * It is the only one which writes to the port, so messages are never interleaved.
+ * @author ribbeck
+ * @since 1.9.0
+ */
+class JeeLinkWriter implements Runnable {
+
+	private final static Logger logger = LoggerFactory.getLogger(JeeLinkWriter.class);
+
+	/** Number of failed writes in a row after which the device is informed. */
+	private final static int MAX_WRITE_ERRORS = 3;
+
+	private final JeeLinkDevice device;
+	private final JeeLinkSendQueue queue;
+	private final OutputStream output;
+	private final JeeLinkCommandCache commands;
+	private final JeeLinkRecorder recorder;
+
+	private volatile boolean running = true;
+
+
+	/**
+	 * Constructor
+	 * @param device JeeLink device which is informed about write errors
+	 * @param queue queue with outgoing messages
+	 * @param output output stream of the JeeLink device
+	 * @param commands cache of encoded commands
+	 * @param recorder recorder of sent messages or null
+	 */
+	public JeeLinkWriter(JeeLinkDevice device, JeeLinkSendQueue queue, OutputStream output, 
+			JeeLinkCommandCache commands, JeeLinkRecorder recorder) {
+		this.device = device;
+		this.queue = queue;
+		this.output = output;
+		this.commands = commands;
+		this.recorder = recorder;
+	}
+
+	/** Stops the writer. The thread must be interrupted if it waits for messages. */
+	public void stop() {
+		running = false;
+	}
+
+	@Override
+	public void run() {
+
+		int errors = 0;
+
+		while (running) {
+
+			final Entry entry;
+			try {
+				entry = queue.take();
+			} catch (InterruptedException e) {
+				return;
+			}
+
+			final JeeLinkMessage msg = entry.getMessage();
+			final byte[] bytes = (msg != null) ? commands.getBytes(msg) : commands.getBytes(entry.getText());
+			try {
+				if (logger.isTraceEnabled()) {
+					logger.trace("Send message " + entry.getText());
+				}
+				output.write(bytes);
+				output.flush();
+				errors = 0;
+
+				// the retry timer of a command starts now
+				if (msg != null) {
+					device.onMessageWritten(msg);
+				}
+
+				if (recorder != null) {
+					recorder.recordSent(bytes);
+				}
+
+			} catch (IOException e) {
+				if (running) {
+					logger.error("Failed to send message " + entry.getText(), e);
+
+					if (++errors >= MAX_WRITE_ERRORS) {
+						device.onWriteError(e);
+						errors = 0;
+					}
+				}
+			} finally {
+				queue.done();
+			}
+		}
+	}
+}
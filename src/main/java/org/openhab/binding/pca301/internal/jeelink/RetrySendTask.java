@@ -4,7 +4,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Task which retry to send a message with decreased retry count.
+ * Task which retry to send a message with decreased retry count or gives up when no retry is left.
  * @author ribbeck
  * @since 1.7.2
  */
@@ -30,7 +30,9 @@ public class RetrySendTask implements Runnable {
 
 	@Override
 	public void run() {
-		logger.info("Command " + msg.getCommand() +" for address " + msg.getAddress() + " failed. Start retry.");
-		dev.sendMessage(msg, (count - 1));
+		if (count > 0) {
+			logger.info("Command " + msg.getCommand() +" for address " + msg.getAddress() + " failed. Start retry.");
+		}
+		dev.retryMessage(msg, count);
 	}
 }
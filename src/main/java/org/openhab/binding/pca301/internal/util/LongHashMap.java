@@ -0,0 +1,230 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.pca301.internal.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A hash map with primitive long keys, which neither boxes keys nor allocates entries.<br>
+ * It uses open addressing with linear probing. The map is not synchronized.
+ * @param <V> type of values
+ * @author ribbeck
+ * @since 1.9.0
+ */
+public class LongHashMap<V> {
+
+	private final static int MIN_CAPACITY = 16;
+
+	private long[] keys;
+	private Object[] values;
+	private int size = 0;
+
+
+	/** Constructor to create an empty map. */
+	public LongHashMap() {
+		this(MIN_CAPACITY);
+	}
+
+	/**
+	 * Constructor to create an empty map for the expected number of entries.
+	 * @param expectedSize expected number of entries
+	 */
+	public LongHashMap(int expectedSize) {
+		int capacity = MIN_CAPACITY;
+		while (capacity < 2 * expectedSize) {
+			capacity <<= 1;
+		}
+		keys = new long[capacity];
+		values = new Object[capacity];
+	}
+
+	/**
+	 * Constructor to create a copy of another map.
+	 * @param other map whose entries are copied
+	 */
+	public LongHashMap(LongHashMap<V> other) {
+		keys = other.keys.clone();
+		values = other.values.clone();
+		size = other.size;
+	}
+
+	/** Returns the number of entries. */
+	public int size() {
+		return size;
+	}
+
+	/** Returns true if the map contains no entries. */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Returns the value of passed key.
+	 * @param key the key
+	 * @return the value or null if the map contains no entry for the key
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(long key) {
+
+		final int mask = keys.length - 1;
+		for (int i = hash(key) & mask; values[i] != null; i = (i + 1) & mask) {
+			if (keys[i] == key) {
+				return (V) values[i];
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns whether the map contains an entry for the key.
+	 * @param key the key
+	 * @return true if an entry exists, false otherwise
+	 */
+	public boolean containsKey(long key) {
+		return get(key) != null;
+	}
+
+	/**
+	 * Associates the value with the key.
+	 * @param key the key
+	 * @param value the value, not null
+	 * @return the previous value or null
+	 */
+	@SuppressWarnings("unchecked")
+	public V put(long key, V value) {
+
+		if (value == null) {
+			throw new IllegalArgumentException("Value must not be null");
+		}
+
+		final int mask = keys.length - 1;
+		int i = hash(key) & mask;
+		for (; values[i] != null; i = (i + 1) & mask) {
+			if (keys[i] == key) {
+				final V old = (V) values[i];
+				values[i] = value;
+				return old;
+			}
+		}
+
+		keys[i] = key;
+		values[i] = value;
+		if (++size > (keys.length >> 1)) {
+			resize(keys.length << 1);
+		}
+		return null;
+	}
+
+	/**
+	 * Removes the entry of the key.
+	 * @param key the key
+	 * @return the removed value or null
+	 */
+	@SuppressWarnings("unchecked")
+	public V remove(long key) {
+
+		final int mask = keys.length - 1;
+		for (int i = hash(key) & mask; values[i] != null; i = (i + 1) & mask) {
+			if (keys[i] == key) {
+				final V old = (V) values[i];
+				values[i] = null;
+				size--;
+				closeGap(i);
+				return old;
+			}
+		}
+		return null;
+	}
+
+	/** Removes all entries. */
+	public void clear() {
+
+		for (int i = 0; i < values.length; i++) {
+			values[i] = null;
+		}
+		size = 0;
+	}
+
+	/** Returns a new list with all values. */
+	@SuppressWarnings("unchecked")
+	public List<V> values() {
+
+		final List<V> list = new ArrayList<V>(size);
+		for (Object value : values) {
+			if (value != null) {
+				list.add((V) value);
+			}
+		}
+		return list;
+	}
+
+	/** Returns a new array with all keys. */
+	public long[] keys() {
+
+		final long[] result = new long[size];
+		int index = 0;
+		for (int i = 0; i < values.length; i++) {
+			if (values[i] != null) {
+				result[index++] = keys[i];
+			}
+		}
+		return result;
+	}
+
+	/** Moves following entries of a probe sequence into the freed slot. */
+	private void closeGap(int gap) {
+
+		final int mask = keys.length - 1;
+		for (int i = (gap + 1) & mask; values[i] != null; i = (i + 1) & mask) {
+
+			final int home = hash(keys[i]) & mask;
+
+			// move the entry when the gap lies cyclically between its home slot and its slot
+			if (((i - home) & mask) >= ((i - gap) & mask)) {
+				keys[gap] = keys[i];
+				values[gap] = values[i];
+				values[i] = null;
+				gap = i;
+			}
+		}
+	}
+
+	private void resize(int capacity) {
+
+		final long[] oldKeys = keys;
+		final Object[] oldValues = values;
+
+		keys = new long[capacity];
+		values = new Object[capacity];
+
+		final int mask = capacity - 1;
+		for (int j = 0; j < oldValues.length; j++) {
+			if (oldValues[j] != null) {
+				int i = hash(oldKeys[j]) & mask;
+				while (values[i] != null) {
+					i = (i + 1) & mask;
+				}
+				keys[i] = oldKeys[j];
+				values[i] = oldValues[j];
+			}
+		}
+	}
+
+	private static int hash(long key) {
+
+		// finalizer of MurmurHash3 spreads consecutive keys
+		key ^= key >>> 33;
+		key *= 0xff51afd7ed558ccdL;
+		key ^= key >>> 33;
+		key *= 0xc4ceb9fe1a85ec53L;
+		key ^= key >>> 33;
+		return (int) key;
+	}
+}
@@ -0,0 +1,92 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.pca301.test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Minimal benchmark harness for the JeeLink hot path.<br>
+ * Every benchmark is run for some warmup rounds and measured rounds. It reports the throughput in operations
+ * per second and the allocated bytes per operation of all threads (HotSpot JVM only), which corresponds to
+ * {@code gc.alloc.rate.norm} of JMH's GC profiler.
+ */
+public class BenchmarkHarness {
+
+	static final Logger logger = LoggerFactory.getLogger(BenchmarkHarness.class);
+
+	/** A benchmark which executes the passed number of operations. */
+	public interface Benchmark {
+		void run(int operations) throws Exception;
+	}
+
+	/** Prevents that the JIT eliminates results of benchmarks. */
+	public static volatile long sink = 0;
+
+	private final int warmupRounds;
+	private final int rounds;
+
+
+	/**
+	 * Constructor
+	 * @param warmupRounds number of rounds which are not reported
+	 * @param rounds number of reported rounds
+	 */
+	public BenchmarkHarness(int warmupRounds, int rounds) {
+		this.warmupRounds = warmupRounds;
+		this.rounds = rounds;
+	}
+
+	/**
+	 * Runs a benchmark and reports the average of the measured rounds.
+	 * @param name name of the benchmark
+	 * @param operations number of operations per round
+	 * @param benchmark the benchmark
+	 */
+	public void measure(String name, int operations, Benchmark benchmark) throws Exception {
+
+		for (int i = 0; i < warmupRounds; i++) {
+			benchmark.run(operations);
+		}
+
+		long nanos = 0;
+		long allocated = 0;
+		for (int i = 0; i < rounds; i++) {
+			final long allocatedBefore = getAllocatedBytes();
+			final long start = System.nanoTime();
+			benchmark.run(operations);
+			nanos += System.nanoTime() - start;
+			allocated += getAllocatedBytes() - allocatedBefore;
+		}
+
+		final double total = (double) operations * rounds;
+		logger.info(String.format("%-40s %,14.0f ops/s %10.1f B/op", name, total / (nanos / 1e9),
+				(allocated < 0) ? Double.NaN : allocated / total));
+	}
+
+	/** Returns the bytes allocated by all live threads, or -1 if not supported by the JVM. */
+	static long getAllocatedBytes() {
+
+		final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+			return -1;
+		}
+
+		long sum = 0;
+		for (long allocated : ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(bean.getAllThreadIds())) {
+			if (allocated > 0) {
+				sum += allocated;
+			}
+		}
+		return sum;
+	}
+}
@@ -0,0 +1,366 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.pca301.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openhab.binding.pca301.internal.PCA301Binding;
+import org.openhab.binding.pca301.internal.PCA301GenericBindingProvider;
+import org.openhab.binding.pca301.internal.jeelink.JeeLinkAddressFilter;
+import org.openhab.binding.pca301.internal.jeelink.JeeLinkDevice;
+import org.openhab.binding.pca301.internal.jeelink.JeeLinkDispatcher.OverflowPolicy;
+import org.openhab.binding.pca301.internal.jeelink.JeeLinkFilter;
+import org.openhab.binding.pca301.internal.jeelink.JeeLinkFilterDispatcher;
+import org.openhab.binding.pca301.internal.jeelink.JeeLinkFilterPayload;
+import org.openhab.binding.pca301.internal.jeelink.JeeLinkFilterRegex;
+import org.openhab.binding.pca301.internal.jeelink.JeeLinkFilterSketch;
+import org.openhab.binding.pca301.internal.jeelink.JeeLinkLine;
+import org.openhab.binding.pca301.internal.jeelink.JeeLinkListener;
+import org.openhab.binding.pca301.internal.jeelink.JeeLinkMessage;
+import org.openhab.binding.pca301.internal.jeelink.JeeLinkTransportLoopback;
+import org.openhab.binding.pca301.test.BenchmarkHarness.Benchmark;
+import org.openhab.core.events.EventPublisher;
+import org.openhab.core.library.items.NumberItem;
+import org.openhab.core.library.items.SwitchItem;
+import org.openhab.core.types.Command;
+import org.openhab.core.types.State;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Benchmark suite for the decode, encode and dispatch hot path of the binding:
+ * filter chain, parsing, encoding, acknowledgement of pending retries, item lookup
+ * and the whole path from a received line to {@link EventPublisher#postUpdate(String, State)}.<br>
+ * Arguments: {@code [warmup rounds] [rounds] [bindings]}
+ */
+public class BenchmarkJeeLink {
+
+	static final Logger logger = LoggerFactory.getLogger(BenchmarkJeeLink.class);
+
+	static final int FIRST_ADDRESS = 0x100000;
+
+	static final String[] LINES = {
+		"OK 24 1 4 16 0 1 1 3 237 0 56",
+		"OK 24 1 5 16 0 2 0 0 0 0 0",
+		"L 24 3 10 : 1 4 16 0 3 1 0 100 0 5",
+		"R 12 : 1 4 16 0 4 1 0 12 1 44",
+	};
+
+
+	public static void main(String[] args) throws Exception {
+
+		final int warmupRounds = (args.length > 0) ? Integer.parseInt(args[0]) : 3;
+		final int rounds = (args.length > 1) ? Integer.parseInt(args[1]) : 5;
+		final int bindings = (args.length > 2) ? Integer.parseInt(args[2]) : 5000;
+
+		final BenchmarkHarness harness = new BenchmarkHarness(warmupRounds, rounds);
+
+		benchmarkFilters(harness);
+		benchmarkParser(harness);
+		benchmarkEncoder(harness);
+		benchmarkPendingRetries(harness, 0);
+		benchmarkPendingRetries(harness, 1000);
+		benchmarkItemLookup(harness, bindings);
+		benchmarkLineToUpdate(harness, bindings);
+	}
+
+	static void benchmarkFilters(BenchmarkHarness harness) throws Exception {
+
+		final JeeLinkLine[] lines = new JeeLinkLine[LINES.length];
+		for (int i = 0; i < lines.length; i++) {
+			lines[i] = new JeeLinkLine(LINES[i]);
+		}
+
+		// filter chain of version 1.7.2
+		final List<JeeLinkFilter> chain = new ArrayList<JeeLinkFilter>();
+		chain.add(new JeeLinkFilterRegex("^OK 24 (.*)$"));
+		chain.add(new JeeLinkFilterRegex("^L 24 \\d+ \\d+ : (.*)$"));
+		chain.add(new JeeLinkFilterRegex("^R \\d+ : (.*)$"));
+		chain.add(new JeeLinkFilterSketch(10, 1));
+
+		harness.measure("filter chain (regex)", 1000000, new Benchmark() {
+			@Override
+			public void run(int operations) throws Exception {
+				for (int i = 0; i < operations; i++) {
+					for (JeeLinkFilter filter : chain) {
+						final JeeLinkMessage msg = filter.processLine(lines[i & 3]);
+						if (msg != null) {
+							BenchmarkHarness.sink += msg.getAddress();
+							break;
+						}
+					}
+				}
+			}
+		});
+
+		final JeeLinkFilterDispatcher dispatcher = new JeeLinkFilterDispatcher();
+		dispatcher.addFilter("OK 24 ", new JeeLinkFilterPayload("OK 24 ", null));
+		dispatcher.addFilter("L 24 ", new JeeLinkFilterPayload("L 24 ", " : "));
+		dispatcher.addFilter("R ", new JeeLinkFilterPayload("R ", " : "));
+		dispatcher.addFilter("[", new JeeLinkFilterSketch(10, 1));
+
+		harness.measure("filter chain (dispatcher)", 1000000, new Benchmark() {
+			@Override
+			public void run(int operations) throws Exception {
+				for (int i = 0; i < operations; i++) {
+					BenchmarkHarness.sink += dispatcher.processLine(lines[i & 3]).getAddress();
+				}
+			}
+		});
+
+		// frames of foreign devices are discarded as soon as the address is decoded
+		final JeeLinkFilter foreign = new JeeLinkFilterPayload("OK 24 ", null, new JeeLinkAddressFilter() {
+			@Override
+			public boolean accept(int address) {
+				return false;
+			}
+		});
+
+		harness.measure("filter foreign frame (address filter)", 1000000, new Benchmark() {
+			@Override
+			public void run(int operations) throws Exception {
+				for (int i = 0; i < operations; i++) {
+					if (foreign.processLine(lines[0]) == null) {
+						BenchmarkHarness.sink++;
+					}
+				}
+			}
+		});
+	}
+
+	static void benchmarkParser(BenchmarkHarness harness) throws Exception {
+
+		final String payload = LINES[0].substring(6);
+		final byte[] bytes = LINES[0].getBytes("US-ASCII");
+
+		harness.measure("parseSerialString", 1000000, new Benchmark() {
+			@Override
+			public void run(int operations) throws Exception {
+				for (int i = 0; i < operations; i++) {
+					BenchmarkHarness.sink += JeeLinkMessage.parseSerialString(payload).getAddress();
+				}
+			}
+		});
+
+		harness.measure("parseSerialBytes", 1000000, new Benchmark() {
+			@Override
+			public void run(int operations) throws Exception {
+				for (int i = 0; i < operations; i++) {
+					BenchmarkHarness.sink += JeeLinkMessage.parseSerialBytes(bytes, 6, bytes.length - 6).getAddress();
+				}
+			}
+		});
+	}
+
+	static void benchmarkEncoder(BenchmarkHarness harness) throws Exception {
+
+		final JeeLinkMessage msg = new JeeLinkMessage(FIRST_ADDRESS, 1, JeeLinkMessage.CMD_STATE, JeeLinkMessage.PARAM_ON);
+
+		harness.measure("toSerialString", 1000000, new Benchmark() {
+			@Override
+			public void run(int operations) throws Exception {
+				for (int i = 0; i < operations; i++) {
+					BenchmarkHarness.sink += msg.toSerialString().length();
+				}
+			}
+		});
+
+		harness.measure("toSerialBytes", 1000000, new Benchmark() {
+			@Override
+			public void run(int operations) throws Exception {
+				for (int i = 0; i < operations; i++) {
+					BenchmarkHarness.sink += msg.toSerialBytes().length;
+				}
+			}
+		});
+	}
+
+	/** Measures the receive path while the passed number of switching commands wait for acknowledgement. */
+	static void benchmarkPendingRetries(BenchmarkHarness harness, int pending) throws Exception {
+
+		final AtomicLong received = new AtomicLong();
+		final JeeLinkListener listener = new JeeLinkListener() {
+
+			@Override
+			public void onValuesReceived(int address, int channel, int power, int consumption) {
+				received.incrementAndGet();
+			}
+
+			@Override
+			public void onStateReceived(int address, int channel, boolean state) {
+			}
+		};
+
+		final JeeLinkTransportLoopback transport = new JeeLinkTransportLoopback(JeeLinkTransportLoopback.SCHEME + "benchmark");
+		final JeeLinkDevice dev = new JeeLinkDevice(transport, 3);
+		// every frame must be delivered to complete the measurement
+		dev.setOverflowPolicy(OverflowPolicy.BLOCK);
+		dev.addListener(listener);
+		dev.open();
+		final Thread drain = drain(transport.getRemoteInputStream());
+
+		// switching commands which are never acknowledged
+		for (int i = 0; i < pending; i++) {
+			dev.setState(FIRST_ADDRESS + 0x10000 + i, 1, true);
+		}
+
+		final OutputStream output = transport.getRemoteOutputStream();
+		final byte[] chunk = createValueLines(1000, 1);
+
+		harness.measure("receive with " + pending + " pending retries", 100000, new Benchmark() {
+			@Override
+			public void run(int operations) throws Exception {
+				final long target = received.get() + operations;
+				for (int i = 0; i < operations; i += 1000) {
+					output.write(chunk);
+				}
+				while (received.get() < target) {
+					Thread.yield();
+				}
+			}
+		});
+
+		dev.removeListener(listener);
+		dev.close();
+		drain.interrupt();
+	}
+
+	static void benchmarkItemLookup(BenchmarkHarness harness, final int bindings) throws Exception {
+
+		final PCA301GenericBindingProvider provider = createProvider(bindings);
+
+		harness.measure("getItemName with " + bindings + " bindings", 100000, new Benchmark() {
+			@Override
+			public void run(int operations) throws Exception {
+				for (int i = 0; i < operations; i++) {
+					final String itemName = provider.getItemName(FIRST_ADDRESS + (i % bindings), "power");
+					BenchmarkHarness.sink += itemName.length();
+				}
+			}
+		});
+	}
+
+	/** Measures the path from a received line to the update of the item. */
+	static void benchmarkLineToUpdate(BenchmarkHarness harness, int bindings) throws Exception {
+
+		final AtomicLong updates = new AtomicLong();
+		final EventPublisher publisher = new EventPublisher() {
+
+			@Override
+			public void sendCommand(String itemName, Command command) {
+			}
+
+			@Override
+			public void postCommand(String itemName, Command command) {
+			}
+
+			@Override
+			public void postUpdate(String itemName, State newState) {
+				updates.incrementAndGet();
+			}
+		};
+
+		final PCA301Binding binding = new PCA301Binding();
+		binding.setEventPublisher(publisher);
+		binding.addBindingProvider(createProvider(bindings));
+
+		final JeeLinkTransportLoopback transport = new JeeLinkTransportLoopback(JeeLinkTransportLoopback.SCHEME + "benchmark");
+		final JeeLinkDevice dev = new JeeLinkDevice(transport, 0);
+		// every frame must be delivered to complete the measurement
+		dev.setOverflowPolicy(OverflowPolicy.BLOCK);
+		dev.addListener(binding);
+		dev.open();
+		final Thread drain = drain(transport.getRemoteInputStream());
+
+		final OutputStream output = transport.getRemoteOutputStream();
+
+		// every chunk changes the power of all addresses, so that every line causes one update
+		final int chunkSize = Math.min(bindings, 1000);
+		final byte[][] chunks = new byte[2][];
+		chunks[0] = createValueLines(chunkSize, 1);
+		chunks[1] = createValueLines(chunkSize, 2);
+
+		// initial states and consumptions
+		output.write(chunks[1]);
+		Thread.sleep(500);
+
+		harness.measure("line to postUpdate with " + bindings + " bindings", 100000, new Benchmark() {
+
+			int index = 0;
+
+			@Override
+			public void run(int operations) throws Exception {
+				final long target = updates.get() + operations;
+				for (int i = 0; i < operations; i += chunkSize) {
+					output.write(chunks[index]);
+					index ^= 1;
+				}
+				while (updates.get() < target) {
+					Thread.yield();
+				}
+			}
+		});
+
+		dev.removeListener(binding);
+		dev.close();
+		drain.interrupt();
+	}
+
+	/** Creates a provider with power, consumption and state items for the passed number of addresses. */
+	static PCA301GenericBindingProvider createProvider(int addresses) throws Exception {
+
+		final PCA301GenericBindingProvider provider = new PCA301GenericBindingProvider();
+		for (int i = 0; i < addresses; i++) {
+			final int address = FIRST_ADDRESS + i;
+			provider.processBindingConfiguration("benchmark", new NumberItem("Power" + i), "address=" + address + ",property=power");
+			provider.processBindingConfiguration("benchmark", new NumberItem("Consumption" + i), "address=" + address + ",property=consumption");
+			provider.processBindingConfiguration("benchmark", new SwitchItem("Socket" + i), "address=" + address + ",property=state");
+		}
+		return provider;
+	}
+
+	/** Creates value lines with consecutive addresses. */
+	static byte[] createValueLines(int count, int power) throws Exception {
+
+		final ByteArrayOutputStream lines = new ByteArrayOutputStream();
+		for (int i = 0; i < count; i++) {
+			final int address = FIRST_ADDRESS + i;
+			final String line = "OK 24 1 4 " + ((address >> 16) & 0xff) + " " + ((address >> 8) & 0xff) + " " + (address & 0xff)
+					+ " 1 0 " + power + " 0 7\r\n";
+			lines.write(line.getBytes("US-ASCII"));
+		}
+		return lines.toByteArray();
+	}
+
+	/** Starts a thread which discards everything written by the device. */
+	static Thread drain(final InputStream input) {
+
+		final Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				final byte[] buffer = new byte[4096];
+				try {
+					while (input.read(buffer) >= 0) {
+						// discard
+					}
+				} catch (Exception e) {
+					// stopped
+				}
+			}
+		}, "drain");
+		thread.setDaemon(true);
+		thread.start();
+		return thread;
+	}
+}
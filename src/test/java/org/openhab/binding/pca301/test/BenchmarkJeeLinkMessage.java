@@ -0,0 +1,79 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.pca301.test;
+
+import java.lang.management.ManagementFactory;
+
+import org.openhab.binding.pca301.internal.jeelink.JeeLinkMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Class to compare the parsers of {@link JeeLinkMessage}.<br>
+ * Reports frames per second and allocated bytes per frame (HotSpot JVM only) of
+ * {@link JeeLinkMessage#parseSerialString(String)} and {@link JeeLinkMessage#parseSerialBytes(byte[], int, int)}.<br>
+ * Arguments: {@code [frames per round] [rounds]}
+ */
+public class BenchmarkJeeLinkMessage {
+
+	static final Logger logger = LoggerFactory.getLogger(BenchmarkJeeLinkMessage.class);
+
+	static final String PAYLOAD = "1 4 2 186 32 1 3 237 0 56";
+
+	/** Prevents that the JIT eliminates the parsing. */
+	static int sink = 0;
+
+
+	public static void main(String[] args) throws Exception {
+
+		final int frames = (args.length > 0) ? Integer.parseInt(args[0]) : 1000000;
+		final int rounds = (args.length > 1) ? Integer.parseInt(args[1]) : 5;
+
+		final String text = PAYLOAD;
+		final byte[] bytes = ("OK 24 " + PAYLOAD + "\r\n").getBytes("US-ASCII");
+		final int offset = 6;
+		final int length = PAYLOAD.length();
+
+		for (int round = 1; round <= rounds; round++) {
+
+			// String path
+			long allocated = getAllocatedBytes();
+			long start = System.nanoTime();
+			for (int i = 0; i < frames; i++) {
+				sink += JeeLinkMessage.parseSerialString(text).getAddress();
+			}
+			report(round, "parseSerialString", frames, System.nanoTime() - start, getAllocatedBytes() - allocated);
+
+			// byte path
+			allocated = getAllocatedBytes();
+			start = System.nanoTime();
+			for (int i = 0; i < frames; i++) {
+				sink += JeeLinkMessage.parseSerialBytes(bytes, offset, length).getAddress();
+			}
+			report(round, "parseSerialBytes ", frames, System.nanoTime() - start, getAllocatedBytes() - allocated);
+		}
+
+		logger.debug("sink " + sink);
+	}
+
+	static void report(int round, String name, int frames, long nanos, long allocated) {
+		logger.info(String.format("round %d %s: %,12.0f frames/s, %8.1f bytes/frame", round, name,
+				frames / (nanos / 1e9), (allocated < 0) ? Double.NaN : (double) allocated / frames));
+	}
+
+	/** Returns the bytes allocated by the current thread, or -1 if not supported by the JVM. */
+	static long getAllocatedBytes() {
+
+		final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return -1;
+	}
+}
@@ -8,8 +8,11 @@
  */
 package org.openhab.binding.pca301.test;
 
+import java.math.BigDecimal;
+
 import org.openhab.binding.pca301.internal.jeelink.JeeLinkDevice;
 import org.openhab.binding.pca301.internal.jeelink.JeeLinkListener;
+import org.openhab.binding.pca301.internal.jeelink.JeeLinkMessage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -30,8 +33,9 @@ public class DebugJeeLink {
 		final JeeLinkListener listener = new JeeLinkListener() {
 			
 			@Override
-			public void onValuesReceived(int address, int channel, double power, double consumption) {
-				logger.info(String.format("device: %d, channel: %d, power: %f W, consumption: %f kWh", address, channel, power, consumption));
+			public void onValuesReceived(int address, int channel, int power, int consumption) {
+				logger.info(String.format("device: %d, channel: %d, power: %s W, consumption: %s kWh", address, channel,
+						BigDecimal.valueOf(power, JeeLinkMessage.POWER_SCALE), BigDecimal.valueOf(consumption, JeeLinkMessage.CONSUMPTION_SCALE)));
 				
 				synchronized (lock) {
 					
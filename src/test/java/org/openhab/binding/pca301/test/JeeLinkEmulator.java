@@ -0,0 +1,322 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.pca301.test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Emulator of a JeeLink device with pcaSerial sketch and a fleet of virtual PCA301 sockets.<br>
+ * It reads the commands of the binding from an input stream and writes frames in pcaSerial format
+ * to an output stream, e.g. the remote streams of a JeeLinkTransportLoopback.
+ * Supported commands are switching, refresh and reset of sockets ({@code <ch>,<cmd>,<addr>,<param>,255,255,255,255s}),
+ * listing of known sockets ({@code l}) and quiet mode ({@code <n>q}).
+ */
+public class JeeLinkEmulator {
+
+	static final Logger logger = LoggerFactory.getLogger(JeeLinkEmulator.class);
+
+	private static final String SKETCH = "[pcaSerial.10.1]";
+
+	private final InputStream input;
+	private final OutputStream output;
+
+	/** Known sockets, access must be synchronized. */
+	private final Map<Integer, VirtualSocket> sockets = new HashMap<Integer, VirtualSocket>();
+	private final List<VirtualSocket> socketList = new ArrayList<VirtualSocket>();
+
+	private final Random random = new Random(301);
+
+	/** Probability in percent that an answer of a socket gets lost. */
+	private volatile int lossRate = 0;
+	/** Value reports of all sockets per second. */
+	private volatile int reportRate = 0;
+
+	private volatile boolean running = false;
+	private Thread commandThread = null;
+	private Thread reportThread = null;
+
+	private volatile long commandCount = 0;
+	private volatile long frameCount = 0;
+
+
+	/**
+	 * Constructor
+	 * @param input stream with commands of the binding
+	 * @param output stream to write frames to the binding
+	 */
+	public JeeLinkEmulator(InputStream input, OutputStream output) {
+		this.input = input;
+		this.output = output;
+	}
+
+	/**
+	 * Adds virtual sockets with consecutive addresses. The sockets are paired but not announced.
+	 * @param count number of sockets
+	 * @param firstAddress address of first socket
+	 */
+	public void addSockets(int count, int firstAddress) {
+		for (int i = 0; i < count; i++) {
+			addSocket(new VirtualSocket(firstAddress + i, 1, 50 + random.nextInt(20000)));
+		}
+	}
+
+	/** Adds a paired virtual socket without announcement. */
+	public void addSocket(VirtualSocket socket) {
+		synchronized (sockets) {
+			sockets.put(Integer.valueOf(socket.getAddress()), socket);
+			socketList.add(socket);
+		}
+	}
+
+	/** Adds a virtual socket and emits a pairing frame like a newly paired PCA301 device. */
+	public void pair(VirtualSocket socket) throws IOException {
+		addSocket(socket);
+		writeFrame("OK 24 " + socket.getPairingPayload());
+	}
+
+	/** Returns the virtual socket with passed address or null. */
+	public VirtualSocket getSocket(int address) {
+		synchronized (sockets) {
+			return sockets.get(Integer.valueOf(address));
+		}
+	}
+
+	/** Sets the probability in percent that an answer of a socket gets lost. */
+	public void setLossRate(int lossRate) {
+		this.lossRate = lossRate;
+	}
+
+	/** Sets the number of value reports of all sockets per second, zero disables reports. */
+	public void setReportRate(int reportRate) {
+		this.reportRate = reportRate;
+	}
+
+	/** Returns the number of commands received from the binding. */
+	public long getCommandCount() {
+		return commandCount;
+	}
+
+	/** Returns the number of frames sent to the binding. */
+	public long getFrameCount() {
+		return frameCount;
+	}
+
+	/** Starts the emulator: writes the sketch signature and starts to process commands and to report values. */
+	public void start() throws IOException {
+
+		running = true;
+		writeFrame(SKETCH);
+
+		commandThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				processCommands();
+			}
+		}, "JeeLink emulator commands");
+		commandThread.setDaemon(true);
+		commandThread.start();
+
+		reportThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				reportValues();
+			}
+		}, "JeeLink emulator reports");
+		reportThread.setDaemon(true);
+		reportThread.start();
+	}
+
+	/** Stops the emulator. */
+	public void stop() {
+		running = false;
+		if (commandThread != null) {
+			commandThread.interrupt();
+		}
+		if (reportThread != null) {
+			reportThread.interrupt();
+		}
+	}
+
+	private void processCommands() {
+
+		final List<Integer> args = new ArrayList<Integer>(10);
+		int value = -1;
+
+		try {
+			int c;
+			while (running && ((c = input.read()) >= 0)) {
+
+				if ((c >= '0') && (c <= '9')) {
+					value = ((value < 0) ? 0 : value * 10) + (c - '0');
+
+				} else if (c == ',') {
+					args.add(Integer.valueOf(value));
+					value = -1;
+
+				} else if (Character.isLetter(c)) {
+					if (value >= 0) {
+						args.add(Integer.valueOf(value));
+					}
+					commandCount++;
+					executeCommand((char) c, args);
+					args.clear();
+					value = -1;
+				}
+			}
+
+		} catch (IOException e) {
+			if (running) {
+				logger.error("Failed to read command", e);
+			}
+		}
+	}
+
+	private void executeCommand(char command, List<Integer> args) throws IOException {
+
+		switch (command) {
+		case 'l':
+			listSockets();
+			break;
+		case 'q':
+			// quiet mode, nothing to emulate
+			break;
+		case 's':
+			if (args.size() != 10) {
+				logger.warn("Invalid send command with " + args.size() + " arguments");
+				return;
+			}
+			sendToSocket(args);
+			break;
+		default:
+			logger.warn("Unknown command " + command);
+			break;
+		}
+	}
+
+	private void sendToSocket(List<Integer> args) throws IOException {
+
+		final int cmd = args.get(1).intValue();
+		final int address = (args.get(2).intValue() << 16) | (args.get(3).intValue() << 8) | args.get(4).intValue();
+		final int param = args.get(5).intValue();
+
+		final VirtualSocket socket = getSocket(address);
+		if (socket == null) {
+			return;
+		}
+
+		switch (cmd) {
+		case 5:
+			socket.setState(param == 1);
+			answer("OK 24 " + socket.getStatePayload());
+			break;
+		case 4:
+			if (param == 1) {
+				socket.resetConsumption();
+			}
+			answer("OK 24 " + socket.getValuesPayload());
+			break;
+		default:
+			logger.warn("Unknown socket command " + cmd);
+			break;
+		}
+	}
+
+	private void answer(String frame) throws IOException {
+
+		final boolean lost;
+		synchronized (random) {
+			lost = random.nextInt(100) < lossRate;
+		}
+		if (!lost) {
+			writeFrame(frame);
+		}
+	}
+
+	private void listSockets() throws IOException {
+
+		final List<VirtualSocket> list;
+		synchronized (sockets) {
+			list = new ArrayList<VirtualSocket>(socketList);
+		}
+
+		for (int i = 0; i < list.size(); i++) {
+			writeFrame("L 24 " + (i + 1) + " " + list.size() + " : " + list.get(i).getValuesPayload());
+		}
+	}
+
+	private void reportValues() {
+
+		int index = 0;
+		long next = System.nanoTime();
+
+		try {
+			while (running) {
+
+				final int rate = reportRate;
+				if (rate <= 0) {
+					Thread.sleep(100);
+					next = System.nanoTime();
+					continue;
+				}
+
+				final VirtualSocket socket;
+				synchronized (sockets) {
+					if (socketList.isEmpty()) {
+						socket = null;
+					} else {
+						index = (index + 1) % socketList.size();
+						socket = socketList.get(index);
+					}
+				}
+
+				if (socket != null) {
+					synchronized (random) {
+						socket.measure(random);
+					}
+					writeFrame("OK 24 " + socket.getValuesPayload());
+				}
+
+				// keep the rate on average, bursts catch up with delays
+				next += 1000000000L / rate;
+				final long delay = next - System.nanoTime();
+				if (delay > 1000000L) {
+					Thread.sleep(delay / 1000000L);
+				}
+			}
+
+		} catch (InterruptedException e) {
+			// stopped
+
+		} catch (IOException e) {
+			if (running) {
+				logger.error("Failed to report values", e);
+			}
+		}
+	}
+
+	private void writeFrame(String frame) throws IOException {
+
+		final byte[] bytes = (frame + "\r\n").getBytes("US-ASCII");
+		synchronized (output) {
+			output.write(bytes);
+			output.flush();
+			frameCount++;
+		}
+	}
+}
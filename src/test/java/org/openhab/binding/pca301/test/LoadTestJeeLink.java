@@ -0,0 +1,100 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.pca301.test;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openhab.binding.pca301.internal.jeelink.JeeLinkDevice;
+import org.openhab.binding.pca301.internal.jeelink.JeeLinkListener;
+import org.openhab.binding.pca301.internal.jeelink.JeeLinkTransportLoopback;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Class to load test the JeeLink device with the {@link JeeLinkEmulator}.<br>
+ * Arguments: {@code [sockets] [reports per second] [duration in seconds] [switches per second] [loss rate in percent]}
+ */
+public class LoadTestJeeLink {
+
+	static final Logger logger = LoggerFactory.getLogger(LoadTestJeeLink.class);
+
+	static final int FIRST_ADDRESS = 0x100000;
+
+
+	public static void main(String[] args) throws Exception {
+
+		final int socketCount = (args.length > 0) ? Integer.parseInt(args[0]) : 1000;
+		final int reportRate = (args.length > 1) ? Integer.parseInt(args[1]) : 10000;
+		final int duration = (args.length > 2) ? Integer.parseInt(args[2]) : 10;
+		final int switchRate = (args.length > 3) ? Integer.parseInt(args[3]) : 100;
+		final int lossRate = (args.length > 4) ? Integer.parseInt(args[4]) : 0;
+
+		final AtomicLong states = new AtomicLong();
+		final AtomicLong values = new AtomicLong();
+
+		final JeeLinkListener listener = new JeeLinkListener() {
+
+			@Override
+			public void onValuesReceived(int address, int channel, int power, int consumption) {
+				values.incrementAndGet();
+			}
+
+			@Override
+			public void onStateReceived(int address, int channel, boolean state) {
+				states.incrementAndGet();
+			}
+		};
+
+		final JeeLinkTransportLoopback transport = new JeeLinkTransportLoopback(JeeLinkTransportLoopback.SCHEME + "emulator");
+		final JeeLinkDevice dev = new JeeLinkDevice(transport, 3);
+		dev.addListener(listener);
+		dev.open();
+
+		final JeeLinkEmulator emulator = new JeeLinkEmulator(transport.getRemoteInputStream(), transport.getRemoteOutputStream());
+		emulator.addSockets(socketCount, FIRST_ADDRESS);
+		emulator.setLossRate(lossRate);
+		emulator.setReportRate(reportRate);
+		emulator.start();
+
+		logger.info("Run " + socketCount + " sockets with " + reportRate + " reports/s and " + switchRate + " switches/s for " + duration + " s");
+
+		final Random random = new Random();
+		final long start = System.nanoTime();
+		final long end = start + duration * 1000000000L;
+		long switches = 0;
+
+		while (System.nanoTime() < end) {
+			if (switchRate > 0) {
+				final int address = FIRST_ADDRESS + random.nextInt(socketCount);
+				dev.setState(address, 1, random.nextBoolean());
+				switches++;
+				Thread.sleep(Math.max(1, 1000 / switchRate));
+			} else {
+				Thread.sleep(100);
+			}
+		}
+
+		final double seconds = (System.nanoTime() - start) / 1e9;
+		emulator.stop();
+
+		logger.info(String.format("frames sent by emulator: %d (%.0f/s)", emulator.getFrameCount(), emulator.getFrameCount() / seconds));
+		logger.info(String.format("values received: %d (%.0f/s), states received: %d", values.get(), values.get() / seconds, states.get()));
+		logger.info(String.format("switch commands: %d, commands received by emulator: %d", switches, emulator.getCommandCount()));
+		logger.info(String.format("send queue: size %d, average wait %.2f ms, maximal wait %d ms, rejected %d",
+				dev.getSendQueueSize(), dev.getSendQueueAverageWaitTime(), dev.getSendQueueMaxWaitTime(), dev.getSendQueueRejectedCount()));
+		logger.info("commands: " + dev.getCommandStatistics());
+		logger.info(String.format("dispatch queue: size %d, maximal size %d, dropped %d, blocked %d",
+				dev.getDispatchQueueSize(), dev.getDispatchQueueMaxSize(), dev.getDispatchDroppedCount(), dev.getDispatchBlockedCount()));
+		logger.info("discarded frames of foreign addresses: " + dev.getDiscardedFrameCount());
+
+		dev.removeListener(listener);
+		dev.close();
+	}
+}
@@ -0,0 +1,75 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.pca301.test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openhab.binding.pca301.internal.jeelink.JeeLinkDevice;
+import org.openhab.binding.pca301.internal.jeelink.JeeLinkDispatcher.OverflowPolicy;
+import org.openhab.binding.pca301.internal.jeelink.JeeLinkListener;
+import org.openhab.binding.pca301.internal.jeelink.JeeLinkTransportReplay;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Class to replay a capture file of a JeeLink device and to measure the throughput of the receive path.<br>
+ * Arguments: {@code <capture file> [fast]}
+ */
+public class ReplayJeeLink {
+
+	static final Logger logger = LoggerFactory.getLogger(ReplayJeeLink.class);
+
+
+	public static void main(String[] args) throws Exception {
+
+		if (args.length < 1) {
+			logger.error("Usage: ReplayJeeLink <capture file> [fast]");
+			return;
+		}
+
+		final boolean fast = (args.length > 1) && "fast".equals(args[1]);
+
+		final AtomicLong states = new AtomicLong();
+		final AtomicLong values = new AtomicLong();
+
+		final JeeLinkListener listener = new JeeLinkListener() {
+
+			@Override
+			public void onValuesReceived(int address, int channel, int power, int consumption) {
+				values.incrementAndGet();
+			}
+
+			@Override
+			public void onStateReceived(int address, int channel, boolean state) {
+				states.incrementAndGet();
+			}
+		};
+
+		final JeeLinkTransportReplay transport = new JeeLinkTransportReplay(args[0], fast);
+		final JeeLinkDevice dev = new JeeLinkDevice(transport, 0);
+		// count every replayed frame
+		dev.setOverflowPolicy(OverflowPolicy.BLOCK);
+		dev.addListener(listener);
+
+		final long start = System.nanoTime();
+		dev.open();
+
+		// the last lines may still be delivered to the listener
+		while (!transport.isFinished() || !dev.isDispatchIdle()) {
+			Thread.sleep(10);
+		}
+
+		final double seconds = (System.nanoTime() - start) / 1e9;
+		logger.info(String.format("replayed %d lines in %.3f s (%.0f lines/s)", transport.getReplayedCount(), seconds, transport.getReplayedCount() / seconds));
+		logger.info(String.format("values received: %d, states received: %d", values.get(), states.get()));
+
+		dev.removeListener(listener);
+		dev.close();
+	}
+}
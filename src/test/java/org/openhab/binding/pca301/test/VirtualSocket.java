@@ -0,0 +1,95 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.pca301.test;
+
+import java.util.Random;
+
+/** A virtual PCA301 socket of the {@link JeeLinkEmulator}. */
+public class VirtualSocket {
+
+	private final int address;
+	private final int channel;
+
+	private boolean state = false;
+	/** Power in 0.1 W */
+	private int power = 0;
+	/** Consumption in 0.01 kWh */
+	private int consumption = 0;
+
+	/** Nominal power of the connected load in 0.1 W */
+	private final int load;
+
+
+	/**
+	 * Constructor
+	 * @param address PCA301 device address
+	 * @param channel communication channel
+	 * @param load nominal power of the connected load in 0.1 W
+	 */
+	public VirtualSocket(int address, int channel, int load) {
+		this.address = address;
+		this.channel = channel;
+		this.load = load;
+	}
+
+	public int getAddress() {
+		return address;
+	}
+
+	public int getChannel() {
+		return channel;
+	}
+
+	public synchronized boolean getState() {
+		return state;
+	}
+
+	public synchronized void setState(boolean state) {
+		this.state = state;
+		if (!state) {
+			power = 0;
+		}
+	}
+
+	public synchronized void resetConsumption() {
+		consumption = 0;
+	}
+
+	/** Simulates a measurement: power fluctuates around the load, consumption increases sometimes. */
+	public synchronized void measure(Random random) {
+
+		if (state) {
+			power = Math.max(0, Math.min(0xffff, load + random.nextInt(21) - 10));
+			if (random.nextInt(100) == 0) {
+				consumption = (consumption + 1) & 0xffff;
+			}
+		}
+	}
+
+	/** Returns the payload of a values frame: {@code <ch> 4 <addr[0..2]> <state> <power[0..1]> <cons[0..1]>} */
+	public synchronized String getValuesPayload() {
+		return channel + " 4 " + addressBytes() + " " + (state ? 1 : 0) + " "
+				+ ((power >> 8) & 0xff) + " " + (power & 0xff) + " "
+				+ ((consumption >> 8) & 0xff) + " " + (consumption & 0xff);
+	}
+
+	/** Returns the payload of a state frame: {@code <ch> 5 <addr[0..2]> <state> 0 0 0 0} */
+	public synchronized String getStatePayload() {
+		return channel + " 5 " + addressBytes() + " " + (state ? 1 : 0) + " 0 0 0 0";
+	}
+
+	/** Returns the payload of a pairing frame: {@code <ch> 17 <addr[0..2]> 0 0 0 0 0} */
+	public String getPairingPayload() {
+		return channel + " 17 " + addressBytes() + " 0 0 0 0 0";
+	}
+
+	private String addressBytes() {
+		return ((address >> 16) & 0xff) + " " + ((address >> 8) & 0xff) + " " + (address & 0xff);
+	}
+}